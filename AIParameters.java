@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The AIParameters class holds the numbers behind the rule of thumb of AIPlayer: which known card
+ * is bad enough to swap out for a better one, and how low the blind value of its hand must be for
+ * it to declare CABO. The defaults are the numbers the AI has always played with; CaboTuner
+ * searches for better ones.
+ *
+ * Parameters are read from properties; every key is optional and defaults to the standard AI:
+ *
+ * <pre>
+ * # a known card is only swapped out if it is worth at least this much
+ * swapThreshold = 8
+ * # CABO is declared when the blind value of the hand is at most a random threshold in this range
+ * caboThresholdMin = 13
+ * caboThresholdMax = 21
+ * </pre>
+ */
+public final class AIParameters {
+
+  /**
+   * The parameters of the standard AI.
+   */
+  public static final AIParameters DEFAULT = new AIParameters(8, 13, 21);
+
+  private final double caboThresholdMax;
+  private final double caboThresholdMin;
+  private final double swapThreshold;
+
+  /**
+   * Creates a set of parameters.
+   *
+   * @param swapThreshold    the lowest score of a known card worth swapping out
+   * @param caboThresholdMin the lowest threshold for declaring CABO
+   * @param caboThresholdMax the highest threshold for declaring CABO
+   * @throws IllegalArgumentException if the lowest CABO threshold is above the highest one
+   */
+  public AIParameters(double swapThreshold, double caboThresholdMin, double caboThresholdMax) {
+
+    if (!(caboThresholdMin <= caboThresholdMax)) {
+      throw new IllegalArgumentException("Invalid CABO threshold range: " + caboThresholdMin
+          + " to " + caboThresholdMax);
+    }
+    this.swapThreshold = swapThreshold;
+    this.caboThresholdMin = caboThresholdMin;
+    this.caboThresholdMax = caboThresholdMax;
+
+  }
+
+  /**
+   * Reads parameters from properties, using the default for every missing key.
+   *
+   * @param properties the parameters, in the format described above
+   * @throws IllegalArgumentException if a value is invalid
+   */
+  public AIParameters(Properties properties) {
+
+    this(parseDouble(properties, "swapThreshold", DEFAULT.swapThreshold),
+        parseDouble(properties, "caboThresholdMin", DEFAULT.caboThresholdMin),
+        parseDouble(properties, "caboThresholdMax", DEFAULT.caboThresholdMax));
+
+  }
+
+  /**
+   * Reads parameters from a properties file.
+   *
+   * @param path the path of the file
+   * @return the parameters
+   * @throws IOException if the file cannot be read
+   */
+  public static AIParameters load(String path) throws IOException {
+
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(Paths.get(path))) {
+      properties.load(reader);
+    }
+    return new AIParameters(properties);
+
+  }
+
+  private static double parseDouble(Properties properties, String key, double defaultValue) {
+
+    String value = properties.getProperty(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+    }
+
+  }
+
+  public double getSwapThreshold() {
+    return swapThreshold;
+  }
+
+  public double getCaboThresholdMin() {
+    return caboThresholdMin;
+  }
+
+  public double getCaboThresholdMax() {
+    return caboThresholdMax;
+  }
+
+  /**
+   * Returns the parameters in the format load() reads.
+   *
+   * @return one "key = value" line per parameter
+   */
+  @Override
+  public String toString() {
+
+    return String.format(Locale.ROOT, "swapThreshold = %.3f%ncaboThresholdMin = %.3f%n"
+        + "caboThresholdMax = %.3f%n", swapThreshold, caboThresholdMin, caboThresholdMax);
+
+  }
+
+}
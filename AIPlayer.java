@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * PROVIDED, but will not compile until the Player class has been created
  * 
@@ -9,7 +11,28 @@
  */
 public class AIPlayer extends Player {
 
-  private final boolean[][] cardKnowledge; // Tracks whether the player knows the rank of a card in the game
+  // Tracks whether the player knows the rank of a card in the game: bit (label * handSize + index)
+  // is set if the AI knows the card at that index of that player's hand
+  private long cardKnowledge;
+  private final CardCounter cardCounter; // the cards the AI has not seen yet
+  private final int handSize;
+  private final long handMask; // the knowledge bits of a single hand, shifted to the first hand
+  private final int numPlayers;
+  private final AIParameters parameters;
+  private final Ruleset rules;
+  private EndgameSolver endgameSolver; // decides the last round if set, see setEndgameSolver()
+
+  /**
+   * Constructs an AIPlayer with the specified name, label, and computer status, playing by the
+   * standard rules.
+   *
+   * @param name       the name of the player.
+   * @param label      the player's label, which uniquely identifies them in the game.
+   * @param isComputer true if the player is a computer-controlled AI, false otherwise.
+   */
+  public AIPlayer(String name, int label, boolean isComputer) {
+    this(name, label, isComputer, Ruleset.STANDARD);
+  }
 
   /**
    * Constructs an AIPlayer with the specified name, label, and computer status.
@@ -18,69 +41,374 @@ public class AIPlayer extends Player {
    * @param name       the name of the player.
    * @param label      the player's label, which uniquely identifies them in the game.
    * @param isComputer true if the player is a computer-controlled AI, false otherwise.
+   * @param rules      the rules of the game, which give the size of the table and the card values.
    */
-  public AIPlayer(String name, int label, boolean isComputer) {
-    super(name, label, isComputer);
+  public AIPlayer(String name, int label, boolean isComputer, Ruleset rules) {
+    this(name, label, isComputer, rules, AIParameters.DEFAULT);
+  }
+
+  /**
+   * Constructs an AIPlayer that plays its rule of thumb with the given parameters.
+   *
+   * @param name       the name of the player.
+   * @param label      the player's label, which uniquely identifies them in the game.
+   * @param isComputer true if the player is a computer-controlled AI, false otherwise.
+   * @param rules      the rules of the game, which give the size of the table and the card values.
+   * @param parameters the numbers behind the AI's decisions.
+   */
+  public AIPlayer(String name, int label, boolean isComputer, Ruleset rules,
+      AIParameters parameters) {
+    super(name, label, isComputer, rules.getHandSize());
+
+    this.parameters = parameters;
+    this.rules = rules;
+    this.numPlayers = rules.getNumPlayers();
+    this.handSize = rules.getHandSize();
+    this.handMask = (1L << handSize) - 1;
 
-    // Initialize the card knowledge for all players; the AI knows its first two cards by default
-    this.cardKnowledge = new boolean[4][4];
-    this.cardKnowledge[label][0] = true; // The AI knows the first card in its hand
-    this.cardKnowledge[label][1] = true; // The AI knows the second card in its hand
+    // The AI knows the first two cards in its hand by default
+    this.cardKnowledge = 0b11L << (label * handSize);
+    this.cardCounter = new CardCounter(rules);
   }
 
   /**
-   * Calculates the "blind" total value of the AI player's hand.
-   * If the AI doesn't know the value of a card in its hand, it assumes an average value of 8 for that card.
-   * Otherwise, it uses the actual rank of the known cards.
-   *
-   * @return the total value of the AI's hand, with unknown cards estimated at a value of 8.
-   */
-  public int calcHandBlind() {
-    int total = 0;
-
-    // Iterate over the cards in the player's hand
-    for (int i = 0; i < 4; ++i) {
-      // If the AI doesn't know the card's value, assume it has a value of 8
-      if (!this.cardKnowledge[getLabel()][i]) {
-        total += 8;
-      } else {
-        // Use the actual card value if known
-        total += getHand().getRankAtIndex(i);
+   * Creates a copy of another AIPlayer, with a copy of its hand and its knowledge. The copy plays
+   * the default strategy of this class, even if the original is a subclass, and has no endgame
+   * solver, which suits simulations; see copy() for a copy that decides like the original.
+   *
+   * @param other the AI player to copy.
+   */
+  public AIPlayer(AIPlayer other) {
+    super(other);
+    this.cardKnowledge = other.cardKnowledge;
+    this.cardCounter = new CardCounter(other.cardCounter);
+    this.handSize = other.handSize;
+    this.handMask = other.handMask;
+    this.numPlayers = other.numPlayers;
+    this.parameters = other.parameters;
+    this.rules = other.rules;
+  }
+
+  /**
+   * Creates an AIPlayer that stands in for a human player in a simulation. It plays the human's
+   * hand and, like the human, knows the first two cards it was shown at the start; it has seen
+   * those two cards and nothing else until the engine shows it the discard pile.
+   *
+   * @param human the player to stand in for.
+   * @param rules the rules of the game.
+   */
+  public AIPlayer(Player human, Ruleset rules) {
+    super(human);
+    this.parameters = AIParameters.DEFAULT;
+    this.rules = rules;
+    this.numPlayers = rules.getNumPlayers();
+    this.handSize = rules.getHandSize();
+    this.handMask = (1L << handSize) - 1;
+    this.cardKnowledge = 0b11L << (getLabel() * handSize);
+    this.cardCounter = new CardCounter(rules);
+    seeCard(getHand().getCard(0));
+    seeCard(getHand().getCard(1));
+  }
+
+  /**
+   * Decides what to do with the card that has just been drawn. If the drawn card is better than
+   * the AI's highest known card, it swaps them. Otherwise, if the drawn card is an action card, it
+   * uses it: peeking at its first unknown card, spying on the opponent it knows least about, or
+   * switching its highest card for the lowest known card at the table. Otherwise it discards it.
+   * In the last round, an AI with an endgame solver lets the solver decide instead.
+   *
+   * @param engine the game, with the card drawn by this player.
+   * @return the move to make with the drawn card, as encoded by Moves.
+   */
+  public int decideMove(CaboEngine engine) {
+    if (endgameSolver != null && engine.getCaboPlayer() != -1) {
+      return endgameSolver.solve(engine, this);
+    }
+
+    int drawnCard = engine.getDrawnCard();
+
+    // Determine if AI should swap or discard
+    int highestCardIndex = getHighestIndex();
+    if (highestCardIndex == -1) {
+      highestCardIndex = 0;
+    }
+
+    // Swap if the drawn card has a lower value than the highest card in hand
+    if (rules.score(drawnCard) < scoreAt(this, highestCardIndex)) {
+      return Moves.swap(highestCardIndex);
+    }
+
+    switch (rules.action(drawnCard)) {
+      case Cards.ACTION_PEEK -> { // Peek at one of its own unknown cards
+        int unknownCardIndex = getUnknownCardIndex();
+        if (unknownCardIndex != -1) {
+          return Moves.peek(unknownCardIndex);
+        }
+      }
+      case Cards.ACTION_SPY -> { // Spy on the opponent it knows least about
+        int target = getSpyTarget();
+        if (target != -1) {
+          return Moves.spy(target, getSpyIndex(target));
+        }
+      }
+      case Cards.ACTION_SWITCH -> { // Switch its worst card with the best known card at the table
+        return decideSwitch(engine);
+      }
+      default -> {
+        /* Not an action card */ }
+    }
+
+    return Moves.discard();
+  }
+
+  private int decideSwitch(CaboEngine engine) {
+    Player[] players = engine.getPlayers();
+    int seat = engine.getCurrentPlayer();
+
+    int aiCardIndex = getHighestIndex();
+    if (aiCardIndex == -1) {
+      aiCardIndex = engine.getRandom().nextInt(getHand().size());
+    }
+
+    // Take the lowest known card at the table; otherwise pick a card of the next player
+    int otherSeat = (seat + 1) % players.length;
+    int otherCardIndex = -1;
+    int lowestValue = Integer.MAX_VALUE;
+    for (int i = 0; i < players.length; ++i) {
+      if (i != seat) {
+        int index = getLowestIndex(players[i]);
+        if (index != -1 && scoreAt(players[i], index) < lowestValue) {
+          lowestValue = scoreAt(players[i], index);
+          otherSeat = i;
+          otherCardIndex = index;
+        }
       }
     }
+    if (otherCardIndex == -1) {
+      otherCardIndex = engine.getRandom().nextInt(players[otherSeat].getHand().size());
+    }
+
+    return Moves.switchCards(aiCardIndex, otherSeat, otherCardIndex);
+  }
+
+  /**
+   * Decides whether to declare CABO at the end of the turn, which the AI does when the blind value
+   * of its hand is at most a random threshold, by default between 13 and 21 (see AIParameters).
+   *
+   * @param engine the game, after this player has used its drawn card.
+   * @return true to declare CABO, false to simply end the turn.
+   */
+  public boolean decideCabo(CaboEngine engine) {
+    double min = parameters.getCaboThresholdMin();
+    double max = parameters.getCaboThresholdMax();
+    return calcHandBlind() <= (min < max ? engine.getRandom().nextDouble(min, max) : min);
+  }
+
+  /**
+   * Returns the knowledge bits of the given player's hand, with bit i set if the AI knows the card
+   * at index i.
+   *
+   * @param label the label of the player whose hand is being checked.
+   * @return the known cards of that player's hand as a bitmask.
+   */
+  public long getKnownCards(int label) {
+    return (cardKnowledge >>> (label * handSize)) & handMask;
+  }
+
+  /**
+   * Lets a solver decide what to do with the drawn card once someone has declared CABO, instead of
+   * the rule of thumb of decideMove(). Only the copies made by copy() keep the solver.
+   *
+   * @param solver the solver, for this AI only, or null to play the last round by rule of thumb.
+   */
+  public void setEndgameSolver(EndgameSolver solver) {
+    this.endgameSolver = solver;
+  }
+
+  public EndgameSolver getEndgameSolver() {
+    return endgameSolver;
+  }
+
+  /**
+   * Returns a copy of this AI, with a copy of its hand and its knowledge, that decides exactly like
+   * it: a subclass returns a copy of its own class, and the copy has the same parameters and shares
+   * the endgame solver. Since the solver is shared, only one of the two may decide at a time.
+   *
+   * @return a copy of this AI, to decide on a copy of the game (see CaboEngine.snapshot()).
+   */
+  public AIPlayer copy() {
+    AIPlayer copy = new AIPlayer(this);
+    copy.endgameSolver = endgameSolver;
+    return copy;
+  }
+
+  /**
+   * Returns the numbers behind the AI's decisions.
+   *
+   * @return the parameters of the AI.
+   */
+  public AIParameters getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Returns the rules the AI plays by.
+   *
+   * @return the ruleset of the game.
+   */
+  public Ruleset getRules() {
+    return rules;
+  }
+
+  private int scoreAt(Player player, int index) {
+    return rules.score(player.getHand().getCard(index));
+  }
+
+  /**
+   * Records that the AI has seen a card: drawn it, peeked or spied at it, or seen it go to the
+   * discard pile. The engine calls this whenever a card is shown to the AI.
+   *
+   * @param card the id of the card.
+   */
+  public void seeCard(int card) {
+    cardCounter.markSeen(card);
+  }
+
+  /**
+   * Returns whether the AI has seen a card, so that it can't be a card the AI doesn't know.
+   *
+   * @param card the id of the card.
+   * @return true if the AI has seen the card.
+   */
+  public boolean hasSeen(int card) {
+    return cardCounter.isSeen(card);
+  }
+
+  /**
+   * Replaces everything this AI knows, about the cards at the table and the cards it has seen, with
+   * what another AI playing in the same seat by the same rules knows. Its hand is not changed.
+   *
+   * @param other the AI player whose knowledge to copy.
+   */
+  public void copyKnowledge(AIPlayer other) {
+    this.cardKnowledge = other.cardKnowledge;
+    this.cardCounter.copyFrom(other.cardCounter);
+  }
+
+  /**
+   * Forgets everything the AI knows, as a new round starts: like a new AI, it knows the first two
+   * cards of its hand once they are dealt, and has seen no other card. Its hand is not changed.
+   */
+  public void resetKnowledge() {
+    this.cardKnowledge = 0b11L << (getLabel() * handSize);
+    this.cardCounter.clear();
+  }
+
+  /**
+   * Returns the number of bytes saveKnowledge() writes for an AI of the given rules.
+   *
+   * @param rules the rules of the game
+   * @return the size of the knowledge, in bytes
+   */
+  public static int knowledgeSize(Ruleset rules) {
+    return Long.BYTES + CardCounter.stateSize(rules);
+  }
+
+  /**
+   * Writes everything this AI knows to a buffer, as knowledgeSize() bytes: its card knowledge
+   * bitmask, then the cards it has seen.
+   *
+   * @param buffer the buffer to write to, at its position.
+   */
+  public void saveKnowledge(ByteBuffer buffer) {
+    buffer.putLong(cardKnowledge);
+    cardCounter.save(buffer);
+  }
+
+  /**
+   * Replaces everything this AI knows with what saveKnowledge() wrote to a buffer.
+   *
+   * @param buffer the buffer to read from, at its position.
+   */
+  public void restoreKnowledge(ByteBuffer buffer) {
+    this.cardKnowledge = buffer.getLong();
+    cardCounter.restore(buffer);
+  }
+
+  /**
+   * Returns the expected value of a card the AI doesn't know, which is the average score of the
+   * cards it has not seen yet.
+   *
+   * @return the expected value of an unknown card.
+   */
+  public double getUnknownCardValue() {
+    return cardCounter.expectedValue();
+  }
+
+  /**
+   * Calculates the "blind" total value of the AI player's hand.
+   * If the AI doesn't know the value of a card in its hand, it counts the expected value of the
+   * cards it has not seen yet for that card. Otherwise, it uses the actual rank of the known cards.
+   *
+   * @return the expected total value of the AI's hand.
+   */
+  public double calcHandBlind() {
+    long known = getKnownCards(getLabel());
+
+    // Every card the AI doesn't know is one of the cards it has not seen yet
+    double total = getUnknownCardValue() * (handSize - Long.bitCount(known));
+
+    // Use the actual card value of every known card
+    for (; known != 0; known &= known - 1) {
+      total += scoreAt(this, Long.numberOfTrailingZeros(known));
+    }
 
     return total;
   }
 
   /**
    * Returns the index of the first card in the AI's hand that is unknown.
-   * The method checks the card knowledge array and identifies the first card
-   * whose rank is unknown to the AI.
    *
    * @return the index of the first unknown card in the AI's hand, or -1 if all cards are known.
    */
   public int getUnknownCardIndex() {
-    for (int i = 0; i < 4; ++i) {
-      if (!cardKnowledge[getLabel()][i]) {
-        return i;
-      }
-    }
-    return -1;
+    return firstUnknownIndex(getLabel());
   }
 
   /**
-   * Returns the index of the first card in the human player's hand that is unknown to the AI.
-   * The AI can use this index for spying on an unknown card in the human player's hand.
+   * Returns the index of the first card in the given player's hand that is unknown to the AI.
+   * The AI can use this index for spying on an unknown card in that player's hand.
    *
-   * @return the index of the first unknown card in the human player's hand, or -1 if all cards are known.
+   * @param label the label of the player to spy on.
+   * @return the index of the first unknown card in that player's hand, or -1 if all cards are known.
    */
-  public int getSpyIndex() {
-    for (int i = 0; i < 4; ++i) {
-      if (!cardKnowledge[0][i]) {
-        return i;
+  public int getSpyIndex(int label) {
+    return firstUnknownIndex(label);
+  }
+
+  private int firstUnknownIndex(int label) {
+    long unknown = ~getKnownCards(label) & handMask;
+    return unknown == 0 ? -1 : Long.numberOfTrailingZeros(unknown);
+  }
+
+  /**
+   * Returns the label of the opponent the AI knows least about, which is the best target for
+   * spying. Ties go to the opponent seated soonest after the AI.
+   *
+   * @return the label of the opponent with the most unknown cards, or -1 if all cards are known.
+   */
+  public int getSpyTarget() {
+    int target = -1;
+    int mostUnknown = 0;
+    for (int i = 1; i < numPlayers; ++i) {
+      int label = (getLabel() + i) % numPlayers;
+      int unknown = handSize - Long.bitCount(getKnownCards(label));
+      if (unknown > mostUnknown) {
+        mostUnknown = unknown;
+        target = label;
       }
     }
-    return -1;
+    return target;
   }
 
   /**
@@ -88,14 +416,17 @@ public class AIPlayer extends Player {
    * The method searches for the card with the lowest rank in the player's hand where the AI has card knowledge.
    *
    * @param player the player whose hand is being evaluated.
-   * @return the index of the lowest-ranked known card, or -1 if no cards are known.
+   * @return the index of the lowest-ranked known card below the expected value of an unknown card,
+   *         or -1 if there is none.
    */
   public int getLowestIndex(Player player) {
-    int lowestValue = 8; // Assuming 8 is the average or maximum value for unknown cards
+    double lowestValue = getUnknownCardValue(); // Only worth taking if better than a blind card
     int lowestIndex = -1;
-    for (int i = 0; i < 4; ++i) {
-      if (cardKnowledge[0][i] && player.getHand().getRankAtIndex(i) < lowestValue) {
-        lowestValue = player.getHand().getRankAtIndex(i);
+    for (long known = getKnownCards(player.getLabel()); known != 0; known &= known - 1) {
+      int i = Long.numberOfTrailingZeros(known);
+      int value = scoreAt(player, i);
+      if (value < lowestValue) {
+        lowestValue = value;
         lowestIndex = i;
       }
     }
@@ -111,7 +442,12 @@ public class AIPlayer extends Player {
    * @param knowledge {@code true} if the AI or player knows the card's value, {@code false} otherwise.
    */
   public void setCardKnowledge(int label, int index, boolean knowledge) {
-    cardKnowledge[label][index] = knowledge;
+    long bit = 1L << (label * handSize + index);
+    if (knowledge) {
+      cardKnowledge |= bit;
+    } else {
+      cardKnowledge &= ~bit;
+    }
   }
 
   /**
@@ -122,13 +458,49 @@ public class AIPlayer extends Player {
    * @return {@code true} if the AI or player knows the card's value, {@code false} otherwise.
    */
   public boolean getCardKnowledge(int label, int index) {
-    return cardKnowledge[label][index];
+    return (cardKnowledge & (1L << (label * handSize + index))) != 0;
+  }
+
+  /**
+   * Exchanges the knowledge of two card positions, after the cards at those positions have been
+   * switched in front of the AI.
+   *
+   * @param label      the label of the first player.
+   * @param index      the index of the card in the first player's hand.
+   * @param otherLabel the label of the second player.
+   * @param otherIndex the index of the card in the second player's hand.
+   */
+  public void switchCardKnowledge(int label, int index, int otherLabel, int otherIndex) {
+    int position = label * handSize + index;
+    int otherPosition = otherLabel * handSize + otherIndex;
+    long differ = ((cardKnowledge >>> position) ^ (cardKnowledge >>> otherPosition)) & 1L;
+    cardKnowledge ^= (differ << position) | (differ << otherPosition);
+  }
+
+  /**
+   * Returns the complete card knowledge of the AI as a single bitmask, so that it can be copied
+   * cheaply.
+   *
+   * @return the card knowledge bitmask.
+   */
+  public long getKnowledge() {
+    return cardKnowledge;
+  }
+
+  /**
+   * Replaces the complete card knowledge of the AI, for example with a copy taken earlier by
+   * {@link #getKnowledge()}.
+   *
+   * @param knowledge the card knowledge bitmask.
+   */
+  public void setKnowledge(long knowledge) {
+    this.cardKnowledge = knowledge;
   }
 
   /**
    * Returns the index of the highest-ranked card in the AI's hand that is known.
    * The method searches for the card with the highest rank in the AI's hand, considering only the cards that the AI knows.
-   * If no card has a rank greater than or equal to 8, the method returns -1.
+   * If no card has a rank greater than or equal to the swap threshold (8 by default), the method returns -1.
    *
    * @return the index of the highest-ranked known card in the AI's hand, or -1 if no suitable card is found.
    */
@@ -136,16 +508,18 @@ public class AIPlayer extends Player {
     int highestValue = -1;
     int highestIndex = -1;
 
-    // Loop through the AI's hand and find the highest-ranked known card
-    for (int i = 0; i < 4; ++i) {
-      if (cardKnowledge[getLabel()][i] && getHand().getRankAtIndex(i) >= highestValue) {
-        highestValue = getHand().getRankAtIndex(i);
+    // Loop through the AI's known cards and find the highest-ranked one
+    for (long known = getKnownCards(getLabel()); known != 0; known &= known - 1) {
+      int i = Long.numberOfTrailingZeros(known);
+      int value = scoreAt(this, i);
+      if (value >= highestValue) {
+        highestValue = value;
         highestIndex = i;
       }
     }
 
-    // Return -1 if no card with rank >= 8 is found
-    if (highestValue < 8) {
+    // Return -1 if no card with rank >= the swap threshold is found
+    if (highestValue < parameters.getSwapThreshold()) {
       highestIndex = -1;
     }
 
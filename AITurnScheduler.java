@@ -0,0 +1,170 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The AITurnScheduler class plays the AI players' turns of a game without blocking the thread that
+ * owns the game, such as the Processing animation thread. Only the owner thread touches the engine
+ * and its players: it draws the AI's card, hands a snapshot of the game (see
+ * {@link CaboEngine#snapshot}) to a background thread, and applies the decision once it comes back
+ * through a thread-safe queue. The background thread only touches the snapshot, in which the AI
+ * player is a copy of itself that decides exactly like it.
+ *
+ * A turn is decided in one go on the background thread: what to do with the drawn card
+ * ({@link AIPlayer#decideMove(CaboEngine)}) and then, with that move made in the snapshot, whether
+ * to declare CABO ({@link AIPlayer#decideCabo(CaboEngine)}). The moves are deterministic, so the
+ * snapshot is then in the state the game will be in once the owner thread makes the move. The
+ * game does not change while the AI is thinking, since it is the AI's turn, unless a new round
+ * starts: then reset() makes sure a decision about the old round is never applied to the new one.
+ */
+public class AITurnScheduler {
+
+  private final ConcurrentLinkedQueue<Decision> decisions = new ConcurrentLinkedQueue<>();
+  private final CaboEngine engine;
+  private final ExecutorService executor;
+  private final Runnable onDecision;
+  private int round; // only used by the owner thread, see reset()
+  private boolean thinking; // only used by the owner thread
+
+  /**
+   * Creates a scheduler for the AI players of the given game.
+   *
+   * @param engine     the game, owned by the thread that calls update()
+   * @param onDecision called on the background thread whenever a decision is ready, for example
+   *                   to request a redraw so the owner thread calls update()
+   */
+  public AITurnScheduler(CaboEngine engine, Runnable onDecision) {
+
+    this.engine = engine;
+    this.onDecision = onDecision;
+    this.executor = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "AI players");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  }
+
+  /**
+   * Applies the AI decisions that have arrived and, if an AI player is to move and nothing is being
+   * decided yet, starts its next decision. Must be called on the thread that owns the game.
+   *
+   * @return true if the game has changed
+   * @throws IllegalStateException if an AI player failed to make a decision
+   */
+  public boolean update() {
+
+    boolean changed = false;
+    Decision decision;
+    while ((decision = decisions.poll()) != null) {
+      if (decision.round != round) {
+        continue; // decided before the round was reset
+      }
+      if (decision.failure != null) {
+        throw new IllegalStateException("An AI player failed to decide", decision.failure);
+      }
+      thinking = false;
+      changed = true;
+      engine.applyMove(decision.move);
+
+      // once the AI has used its card, it ends its turn, with CABO if it decided so
+      if (Moves.usesDrawnCard(decision.move)) {
+        engine.applyMove(decision.cabo ? Moves.cabo() : Moves.endTurn());
+      }
+    }
+
+    Player player = engine.getPlayers()[engine.getCurrentPlayer()];
+    if (!thinking && !engine.isGameOver() && player.isComputer()) {
+      changed = true;
+      if (engine.beginAITurn()) {
+        decide();
+      }
+    }
+
+    return changed;
+
+  }
+
+  /**
+   * Returns whether an AI player is deciding on its move.
+   *
+   * @return true if a decision is being made on the background thread
+   */
+  public boolean isThinking() {
+    return thinking;
+  }
+
+  /**
+   * Forgets the decision being made, if there is one, because the game has started a new round
+   * (see CaboEngine.newRound()). The decision still finishes on the background thread, against its
+   * snapshot of the old round, so the new round can start right away; it is dropped when it
+   * arrives, and the next call to update() starts the new round's first AI turn, which is decided
+   * after it on the same thread.
+   * Must be called on the thread that owns the game.
+   */
+  public void reset() {
+
+    round++;
+    thinking = false;
+
+  }
+
+  /**
+   * Stops the background thread. Decisions that are still being made are abandoned.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Decides the current player's turn on the background thread, against a snapshot of the game,
+   * and queues the decision.
+   */
+  private void decide() {
+
+    CaboEngine snapshot = engine.snapshot(engine.getRandom().split());
+    AIPlayer ai = (AIPlayer) snapshot.getPlayers()[snapshot.getCurrentPlayer()];
+    int decisionRound = round;
+    thinking = true;
+    executor.execute(() -> {
+      try {
+        long start = System.nanoTime();
+        int move = ai.decideMove(snapshot);
+        boolean cabo = false;
+        if (Moves.usesDrawnCard(move) && snapshot.getCaboPlayer() == -1) {
+          snapshot.applyMove(move);
+          cabo = ai.decideCabo(snapshot);
+        }
+        CaboMetrics.get().aiDecisionTime().recordSince(start);
+        decisions.add(new Decision(decisionRound, move, cabo, null));
+      } catch (RuntimeException e) {
+        decisions.add(new Decision(decisionRound, 0, false, e));
+      }
+      onDecision.run();
+    });
+
+  }
+
+  /**
+   * An AI turn decided on the background thread, or the failure to decide it, with the round it was
+   * decided in.
+   */
+  private static final class Decision {
+
+    final boolean cabo; // whether to declare CABO after the move
+    final RuntimeException failure;
+    final int move;
+    final int round;
+
+    Decision(int round, int move, boolean cabo, RuntimeException failure) {
+
+      this.round = round;
+      this.move = move;
+      this.cabo = cabo;
+      this.failure = failure;
+
+    }
+
+  }
+
+}
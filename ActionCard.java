@@ -6,17 +6,17 @@ public class ActionCard extends BaseCard {
 
   private String actionType;
 
-  public ActionCard(int rank, String suit, String actionType) {
+  public ActionCard(int card) {
 
-    super(rank, suit);
-    this.actionType = actionType;
+    super(card);
+    this.actionType = Cards.actionName(Cards.action(card));
 
   }
-  
+
   public String getActionType() {
-    
+
     return this.actionType;
-    
+
   }
 
 }
@@ -1,83 +1,81 @@
 import processing.core.PApplet;
+import processing.core.PGraphics;
 import java.util.*;
-import java.io.File;
 
+/**
+ * The BaseCard class draws one card of the deck on the screen. The game itself works with the
+ * compact card ids defined in Cards; every id has exactly one BaseCard. The images are shared by
+ * all cards through the CardAtlas.
+ */
 public class BaseCard {
 
-  private static processing.core.PImage cardBack;
-  private processing.core.PImage cardImage;
+  private static final BaseCard[] views = new BaseCard[Cards.MAX_CARDS];
+
+  protected final int card;
   protected boolean faceUp;
-  private final int HEIGHT = 70;
+  private final int HEIGHT = CardAtlas.CARD_HEIGHT;
   protected static processing.core.PApplet processing;
   protected int rank;
   protected String suit;
-  private final int WIDTH = 50;
-  private int x;
-  private int y;
-
-  public BaseCard(int rank, String suit) {
+  private final int WIDTH = CardAtlas.CARD_WIDTH;
 
-    if (processing == null) {
-      throw new IllegalStateException(
-          "Processing environment must be set before creating the card.");
-    }
+  public BaseCard(int card) {
 
-    this.rank = rank;
-    this.suit = suit;
+    this.card = card;
+    this.rank = Cards.rank(card);
+    this.suit = Cards.suitName(card);
     this.faceUp = false;
 
-    if (cardBack == null) {
-      cardBack = processing.loadImage("images" + File.separator + "back.png");
-    }
+  }
 
-    String imagePath = "images" + File.separator + rank + "_of_" + suit.toLowerCase() + ".png";
-    this.cardImage = processing.loadImage(imagePath);
+  /**
+   * Returns the BaseCard that draws the card with the given id, creating it on first use.
+   *
+   * @param card the id of the card
+   * @return the BaseCard for that card
+   */
+  public static BaseCard forCard(int card) {
+
+    BaseCard view = views[card];
+    if (view == null) {
+      view = Cards.isAction(card) ? new ActionCard(card) : new BaseCard(card);
+      views[card] = view;
+    }
+    return view;
 
   }
 
   public void draw(int xPosition, int yPosition) {
 
-    this.x = xPosition;
-    this.y = yPosition;
-
-    if (faceUp) {
-
-      processing.fill(255);
-      processing.rect(xPosition, yPosition, WIDTH, HEIGHT);
-      processing.image(cardImage, xPosition, yPosition, WIDTH, HEIGHT);
+    CardAtlas.load(processing);
+    draw(processing.g, xPosition, yPosition);
 
-    } else {
+  }
 
-      processing.fill(255);
-      processing.rect(xPosition, yPosition, WIDTH, HEIGHT);
-      processing.image(cardBack, xPosition, yPosition, WIDTH, HEIGHT);
+  /**
+   * Draws the card on the given graphics, in window coordinates.
+   *
+   * @param g         the graphics to draw on
+   * @param xPosition the x-coordinate of the top-left corner of the card
+   * @param yPosition the y-coordinate of the top-left corner of the card
+   */
+  public void draw(PGraphics g, int xPosition, int yPosition) {
 
-    }
+    g.fill(255);
+    g.rect(xPosition, yPosition, WIDTH, HEIGHT);
+    CardAtlas.draw(g, card, faceUp, xPosition, yPosition);
 
   }
 
-  public int getRank() {
+  public int getCard() {
 
-    if (this.suit.equals("Diamonds") && this.rank == 13) {
-      return -1;
-    } else {
-      return this.rank;
-    }
+    return this.card;
 
   }
 
-  public boolean isMouseOver() {
-    int left = this.x;
-    int top = this.y;
-    int right = this.x + this.WIDTH;
-    int bottom = this.y + this.HEIGHT;
-
-    if ((processing.mouseX >= left) && (processing.mouseX <= right) && (processing.mouseY <= bottom)
-        && (processing.mouseY >= top)) {
-      return true;
-    } else {
-      return false;
-    }
+  public int getRank() {
+
+    return Cards.score(this.card);
 
   }
 
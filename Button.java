@@ -1,12 +1,14 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import processing.core.PApplet;
+import processing.core.PGraphics;
 
 public class Button {
 
   private boolean active;
   private int height;
   private String label;
+  private int version; // changes whenever the button's state changes, see getVersion()
   protected static processing.core.PApplet processing;
   private int width;
   private int x;
@@ -26,22 +28,41 @@ public class Button {
   }
 
   public void draw() {
+    draw(processing.g);
+  }
+
+  /**
+   * Draws the button on the given graphics, in window coordinates.
+   *
+   * @param g the graphics to draw on
+   */
+  public void draw(PGraphics g) {
+    draw(g, isMouseOver());
+  }
+
+  /**
+   * Draws the button on the given graphics, in window coordinates, hovered or not.
+   *
+   * @param g       the graphics to draw on
+   * @param hovered whether the mouse is over the button
+   */
+  public void draw(PGraphics g, boolean hovered) {
 
     if (active) {
-      if (this.isMouseOver()) {
-        processing.fill(150);
+      if (hovered) {
+        g.fill(150);
       } else {
-        processing.fill(200);
+        g.fill(200);
       }
     } else {
-      processing.fill(255, 51, 51);
+      g.fill(255, 51, 51);
     }
 
-    processing.rect(x, y, width, height, 5);
-    processing.fill(0);
-    processing.textSize(14);
-    processing.textAlign(PApplet.CENTER, PApplet.CENTER);
-    processing.text(label, (x + (width / 2)), (y + (height / 2)));
+    g.rect(x, y, width, height, 5);
+    g.fill(0);
+    g.textSize(14);
+    g.textAlign(PApplet.CENTER, PApplet.CENTER);
+    g.text(label, (x + (width / 2)), (y + (height / 2)));
 
   }
 
@@ -49,6 +70,22 @@ public class Button {
     return this.label;
   }
 
+  public int getX() {
+    return x;
+  }
+
+  public int getY() {
+    return y;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
   public boolean isActive() {
     return active;
   }
@@ -71,11 +108,27 @@ public class Button {
   }
 
   public void setActive(boolean active) {
-    this.active = active;
+    if (this.active != active) {
+      this.active = active;
+      version++;
+    }
   }
 
   public void setLabel(String label) {
-    this.label = label;
+    if (!this.label.equals(label)) {
+      this.label = label;
+      version++;
+    }
+  }
+
+  /**
+   * Returns a number that changes whenever the button is activated, deactivated or relabeled, so
+   * that a view of the button knows when to redraw it.
+   *
+   * @return the version of the button
+   */
+  public int getVersion() {
+    return version;
   }
 
   public static void setProcessing(processing.core.PApplet processing) {
@@ -0,0 +1,412 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * The CaboBenchmark class measures the throughput and allocation rate of the game's hot paths, so
+ * that engine changes can be checked for regressions. Each benchmark runs a number of warmup
+ * iterations and then a number of measured iterations of a fixed duration; the report gives the
+ * mean throughput with its standard deviation and the number of bytes allocated per operation.
+ *
+ * The table benchmarks play whole games at tables of different sizes, from two players to eight
+ * players with two decks, and count AI turns, so that the cost of a turn can be compared across
+ * table sizes.
+ *
+ * The table footprint report measures the heap taken by server tables (see CaboTable) with a game
+ * in progress, and by the same tables once they have hibernated.
+ *
+ * Usage: {@code java CaboBenchmark [name filter] [seconds per iteration]}
+ */
+public class CaboBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+  private static final int FOOTPRINT_TABLES = 10_000;
+
+  private static volatile long sink; // keeps the JIT from eliminating benchmark results
+
+  /**
+   * A single benchmark. {@link #setup(int)} prepares the state for the given number of operations
+   * outside of the measurement, and {@link #run(int)} performs them.
+   */
+  private abstract static class Benchmark {
+
+    private final String name;
+    private final int maxOps;
+
+    Benchmark(String name) {
+      this(name, 1 << 28);
+    }
+
+    Benchmark(String name, int maxOps) {
+      this.name = name;
+      this.maxOps = maxOps;
+    }
+
+    void setup(int ops) {
+    }
+
+    abstract long run(int ops);
+
+  }
+
+  /**
+   * Returns a full hand, dealt from a seeded deck.
+   */
+  private static Hand dealHand(SplittableRandom random) {
+
+    Hand hand = new Hand();
+    int[] deck = Deck.createDeck(random);
+    for (int i = 0; i < Ruleset.STANDARD.getHandSize(); i++) {
+      hand.addCard(deck[i]);
+    }
+    return hand;
+
+  }
+
+  /**
+   * Returns an AIPlayer with a dealt hand, who knows the first two cards of every hand.
+   */
+  private static AIPlayer dealAIPlayer(SplittableRandom random) {
+
+    AIPlayer player = new AIPlayer("Bench", 1, true);
+    int[] deck = Deck.createDeck(random);
+    for (int i = 0; i < Ruleset.STANDARD.getHandSize(); i++) {
+      player.addCardToHand(deck[i]);
+    }
+    for (int label = 0; label < Ruleset.STANDARD.getNumPlayers(); label++) {
+      player.setCardKnowledge(label, 0, true);
+      player.setCardKnowledge(label, 1, true);
+    }
+    return player;
+
+  }
+
+  private static List<Benchmark> benchmarks() {
+
+    SplittableRandom random = new SplittableRandom(42);
+    Hand hand = dealHand(random);
+    Hand otherHand = dealHand(random);
+    AIPlayer aiPlayer = dealAIPlayer(random);
+    Player opponent = new Player("Opponent", 0, false);
+    for (int i = 0; i < otherHand.size(); i++) {
+      opponent.addCardToHand(otherHand.getCard(i));
+    }
+
+    List<Benchmark> benchmarks = new ArrayList<>();
+
+    benchmarks.add(new Benchmark("Deck.createDeck") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += Deck.createDeck(random)[0];
+        }
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("Ruleset.handScore") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += Ruleset.STANDARD.handScore(hand);
+        }
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("Hand.swap") {
+      long run(int ops) {
+        int card = 0;
+        for (int i = 0; i < ops; i++) {
+          card = hand.swap(card, i & 3);
+        }
+        return card;
+      }
+    });
+
+    benchmarks.add(new Benchmark("Hand.switchCards") {
+      long run(int ops) {
+        for (int i = 0; i < ops; i++) {
+          hand.switchCards(i & 3, otherHand, (i >> 2) & 3);
+        }
+        return hand.getCard(0);
+      }
+    });
+
+    benchmarks.add(new Benchmark("AIPlayer.calcHandBlind") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += aiPlayer.calcHandBlind();
+        }
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("AIPlayer.getHighestIndex") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += aiPlayer.getHighestIndex();
+        }
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("AIPlayer.getLowestIndex") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += aiPlayer.getLowestIndex(opponent);
+        }
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("CaboEngine.performAITurn", 1 << 16) {
+      private CaboEngine[] engines;
+
+      void setup(int ops) {
+        // one fresh game per operation, so every measured turn is an early-game turn
+        engines = new CaboEngine[ops];
+        for (int i = 0; i < ops; i++) {
+          engines[i] = new CaboEngine(aiPlayers(Ruleset.STANDARD), i);
+        }
+      }
+
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          engines[i].performAITurn();
+          total += engines[i].getCurrentPlayer();
+        }
+        engines = null;
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("EndgameSolver.solve", 1 << 16) {
+      private final EndgameSolver solver = new EndgameSolver(Ruleset.STANDARD);
+      private CaboEngine[] engines;
+
+      void setup(int ops) {
+        // one game per operation, played until an AI has drawn a card after someone declared CABO
+        engines = new CaboEngine[ops];
+        for (int i = 0, seed = 0; i < ops; seed++) {
+          CaboEngine engine = new CaboEngine(aiPlayers(Ruleset.STANDARD), seed);
+          while (!engine.isGameOver() && engine.getCaboPlayer() == -1) {
+            engine.performAITurn();
+          }
+          if (!engine.isGameOver() && engine.beginAITurn()) {
+            engines[i++] = engine;
+          }
+        }
+      }
+
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          CaboEngine engine = engines[i];
+          total += solver.solve(engine, (AIPlayer) engine.getPlayers()[engine.getCurrentPlayer()]);
+        }
+        engines = null;
+        return total;
+      }
+    });
+
+    benchmarks.add(new Benchmark("CaboTournament.playGame") {
+      long run(int ops) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += CaboTournament.playGame(Ruleset.STANDARD, random.split()).getTurnCount();
+        }
+        return total;
+      }
+    });
+
+    int[][] tables = {{2, 4, 1}, {4, 4, 1}, {6, 4, 1}, {8, 4, 2}, {8, 6, 2}};
+    for (int[] table : tables) {
+      Ruleset rules = tableRules(table[0], table[1], table[2]);
+      String name = "table " + table[0] + "x" + table[1] + ", " + table[2]
+          + (table[2] == 1 ? " deck" : " decks");
+      benchmarks.add(new Benchmark(name) {
+        long run(int ops) {
+          // one operation is an AI turn; a new game is dealt whenever one ends
+          long total = 0;
+          CaboEngine engine = null;
+          for (int i = 0; i < ops; i++) {
+            if (engine == null || engine.isGameOver()) {
+              engine = new CaboEngine(aiPlayers(rules), rules, random.split());
+            }
+            engine.performAITurn();
+            total += engine.getCurrentPlayer();
+          }
+          return total;
+        }
+      });
+    }
+
+    return benchmarks;
+
+  }
+
+  private static Ruleset tableRules(int numPlayers, int handSize, int decks) {
+
+    Properties properties = new Properties();
+    properties.setProperty("players", Integer.toString(numPlayers));
+    properties.setProperty("handSize", Integer.toString(handSize));
+    properties.setProperty("decks", Integer.toString(decks));
+    return new Ruleset(properties);
+
+  }
+
+  private static Player[] aiPlayers(Ruleset rules) {
+
+    Player[] players = new Player[rules.getNumPlayers()];
+    for (int i = 0; i < players.length; i++) {
+      players[i] = new AIPlayer("AI " + (i + 1), i, true, rules);
+    }
+    return players;
+
+  }
+
+  private static long allocatedBytes() {
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+  }
+
+  /**
+   * Runs a benchmark and prints its results.
+   *
+   * @param benchmark the benchmark to run
+   * @param seconds   the duration of each iteration
+   */
+  private static void measure(Benchmark benchmark, double seconds) {
+
+    // calibrate the number of operations per iteration to roughly the requested duration
+    int ops = 1;
+    while (true) {
+      benchmark.setup(ops);
+      long start = System.nanoTime();
+      sink += benchmark.run(ops);
+      long elapsed = System.nanoTime() - start;
+      if (elapsed > seconds * 1e8 || ops >= benchmark.maxOps) {
+        ops = (int) Math.min(benchmark.maxOps, Math.max(1, ops * (seconds * 1e9 / elapsed)));
+        break;
+      }
+      ops *= 2;
+    }
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      benchmark.setup(ops);
+      sink += benchmark.run(ops);
+    }
+
+    double[] throughput = new double[MEASURED_ITERATIONS];
+    long totalBytes = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      benchmark.setup(ops);
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      sink += benchmark.run(ops);
+      long elapsed = System.nanoTime() - start;
+      totalBytes += allocatedBytes() - bytes;
+      throughput[i] = ops / (elapsed / 1e9);
+    }
+
+    double mean = 0;
+    for (double value : throughput) {
+      mean += value;
+    }
+    mean /= throughput.length;
+    double variance = 0;
+    for (double value : throughput) {
+      variance += (value - mean) * (value - mean);
+    }
+    double stddev = Math.sqrt(variance / (throughput.length - 1));
+    double bytesPerOp = (double) totalBytes / ((long) ops * MEASURED_ITERATIONS);
+
+    System.out.printf("%-28s %16.1f +- %12.1f ops/s %12.1f B/op %10.1f MB/s%n", benchmark.name,
+        mean, stddev, bytesPerOp, bytesPerOp * mean / (1024 * 1024));
+
+  }
+
+  private static long usedHeap() {
+
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+  }
+
+  /**
+   * Measures the heap taken per table with a game in progress and per hibernating table, and the
+   * memory the hibernating tables take off the heap, and prints the results.
+   *
+   * @param count the number of tables to measure
+   */
+  private static void measureTableFootprint(int count) {
+
+    Ruleset rules = Ruleset.STANDARD;
+    TableStore store = new TableStore(CaboTable.slotSize(rules));
+    CaboTable[] tables = new CaboTable[count];
+    long empty = usedHeap();
+
+    // the tables' tasks run right away on the calling thread
+    for (int i = 0; i < count; i++) {
+      long seed = i;
+      tables[i] = new CaboTable(i, rules, Runnable::run, store);
+      tables[i].call(t -> {
+        t.newGame(seed);
+        return t.move(Moves.draw()) && t.move(Moves.discard());
+      });
+    }
+    long active = usedHeap();
+
+    for (CaboTable table : tables) {
+      table.hibernateIfIdle(0);
+    }
+    long hibernating = usedHeap();
+    sink += tables.length;
+
+    System.out.printf("%nTable footprint (%d tables)%n", count);
+    System.out.printf("%-28s %16.1f B%n", "active, heap", (double) (active - empty) / count);
+    System.out.printf("%-28s %16.1f B%n", "hibernating, heap",
+        (double) (hibernating - empty) / count);
+    System.out.printf("%-28s %16.1f B%n", "hibernating, off-heap",
+        (double) store.getCapacityBytes() / count);
+
+  }
+
+  /**
+   * Runs the benchmarks from the command line.
+   *
+   * @param args optionally a substring of the names of the benchmarks to run, and optionally the
+   *             duration of each iteration in seconds (defaults to 1)
+   */
+  public static void main(String[] args) {
+
+    String filter = args.length > 0 ? args[0] : "";
+    double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+
+    System.out.printf("%-28s %16s   %12s %18s %14s%n", "Benchmark", "Throughput", "Error",
+        "Allocation", "Alloc rate");
+    for (Benchmark benchmark : benchmarks()) {
+      if (benchmark.name.contains(filter)) {
+        measure(benchmark, seconds);
+      }
+    }
+    if ("table footprint".contains(filter)) {
+      measureTableFootprint(FOOTPRINT_TABLES);
+    }
+
+  }
+
+}
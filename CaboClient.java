@@ -0,0 +1,299 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CaboClient class is a connection to a CaboServer, and a scripted player for testing servers:
+ * many clients play full games over loopback at the same time and report the throughput and the
+ * round-trip time of the requests.
+ *
+ * Usage: {@code java CaboClient <host or "local"> <port> <clients> <games per client> [seed]}; with
+ * "local", a server is started in the same JVM on the given port (0 for any free port).
+ */
+public class CaboClient implements Closeable {
+
+  private byte[] view = new byte[0]; // the last STATE reply, see CaboTable.writeView()
+  private String error;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final Socket socket;
+
+  /**
+   * Connects to a server.
+   *
+   * @param host the host of the server
+   * @param port the port of the server
+   * @throws IOException if the connection fails
+   */
+  public CaboClient(String host, int port) throws IOException {
+
+    this.socket = new Socket(host, port);
+    socket.setTcpNoDelay(true);
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+  }
+
+  /**
+   * Starts a new game at the client's table and waits for the table.
+   *
+   * @param seed the seed of the game
+   * @throws IOException if the connection fails
+   */
+  public void newGame(long seed) throws IOException {
+
+    out.write(CaboServer.NEW_GAME);
+    out.writeLong(seed);
+    if (!readReply()) {
+      throw new IOException(error);
+    }
+
+  }
+
+  /**
+   * Makes a move and waits for the table, after the AI players' turns.
+   *
+   * @param move the move, as encoded by Moves
+   * @return true if the move was made, false if the server refused it (see getError())
+   * @throws IOException if the connection fails
+   */
+  public boolean move(int move) throws IOException {
+
+    out.write(CaboServer.MOVE);
+    out.writeInt(move);
+    return readReply();
+
+  }
+
+  private boolean readReply() throws IOException {
+
+    out.flush();
+    int reply = in.readUnsignedByte();
+    if (reply == CaboServer.ERROR) {
+      error = in.readUTF();
+      return false;
+    } else if (reply != CaboServer.STATE) {
+      throw new IOException("Unknown reply " + reply);
+    }
+
+    // the view starts with the size of the table
+    int numPlayers = in.readUnsignedByte();
+    int handSize = in.readUnsignedByte();
+    int size = 12 + numPlayers * handSize;
+    if (view.length != size) {
+      view = new byte[size];
+    }
+    view[0] = (byte) numPlayers;
+    view[1] = (byte) handSize;
+    in.readFully(view, 2, size - 2);
+    return true;
+
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public int getNumPlayers() {
+    return view[0];
+  }
+
+  public int getHandSize() {
+    return view[1];
+  }
+
+  public int getCurrentPlayer() {
+    return view[2];
+  }
+
+  public int getCaboPlayer() {
+    return view[3];
+  }
+
+  /**
+   * Returns the card the client has drawn and not used yet.
+   *
+   * @return the id of the card, or Cards.NONE
+   */
+  public int getDrawnCard() {
+    return Cards.fromByte(view[4]);
+  }
+
+  public boolean isGameOver() {
+    return (view[5] & 1) != 0;
+  }
+
+  public boolean hasDrawn() {
+    return (view[5] & 2) != 0;
+  }
+
+  public int getDeckSize() {
+    return view[6] & 0xFF;
+  }
+
+  public int getTurnCount() {
+    return ((view[8] & 0xFF) << 24) | ((view[9] & 0xFF) << 16) | ((view[10] & 0xFF) << 8)
+        | (view[11] & 0xFF);
+  }
+
+  /**
+   * Returns a card at the table, if the client can see it.
+   *
+   * @param seat the seat of the player
+   * @param slot the index of the card in the player's hand
+   * @return the id of the card, or Cards.NONE if it is face-down
+   */
+  public int getCard(int seat, int slot) {
+    return Cards.fromByte(view[12 + seat * getHandSize() + slot]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  /**
+   * Plays a game to the end from seat 0 with a simple script: it remembers the cards it has seen
+   * in its hand, swaps low drawn cards in for high or unknown ones, peeks at unknown cards, and
+   * declares CABO once it knows its whole hand and it is worth little.
+   *
+   * @param seed the seed of the game
+   * @return the number of moves made
+   * @throws IOException if the connection fails or the server refuses a move
+   */
+  public int playScripted(long seed) throws IOException {
+
+    newGame(seed);
+    int[] known = new int[getHandSize()];
+    Arrays.fill(known, Cards.NONE);
+    int moves = 0;
+
+    while (!isGameOver()) {
+      for (int j = 0; j < known.length; j++) {
+        if (getCard(0, j) != Cards.NONE) {
+          known[j] = getCard(0, j);
+        }
+      }
+
+      int total = 0;
+      int unknown = -1;
+      int highest = -1;
+      for (int j = 0; j < known.length; j++) {
+        if (known[j] == Cards.NONE) {
+          unknown = j;
+        } else {
+          total += Cards.score(known[j]);
+          if (highest == -1 || Cards.score(known[j]) > Cards.score(known[highest])) {
+            highest = j;
+          }
+        }
+      }
+
+      int move;
+      if (!hasDrawn()) {
+        move = unknown == -1 && total <= 10 && getCaboPlayer() == -1 ? Moves.cabo() : Moves.draw();
+      } else if (getDrawnCard() == Cards.NONE) {
+        move = Moves.endTurn();
+      } else {
+        int drawn = getDrawnCard();
+        int target = unknown != -1 ? unknown : highest;
+        if (Cards.score(drawn) <= 4 && (unknown != -1
+            || Cards.score(drawn) < Cards.score(known[highest]))) {
+          move = Moves.swap(target);
+          known[target] = drawn;
+        } else if (Cards.action(drawn) == Cards.ACTION_PEEK && unknown != -1) {
+          move = Moves.peek(unknown);
+        } else {
+          move = Moves.discard();
+        }
+      }
+
+      if (!move(move)) {
+        throw new IOException(error);
+      }
+      moves++;
+    }
+    return moves;
+
+  }
+
+  /**
+   * Plays scripted games from many clients at once and prints the throughput and round-trip time.
+   *
+   * @param args the host, or "local" to start a server in this JVM, the port, the number of
+   *             clients, the number of games each client plays, and optionally the seed
+   * @throws Exception if a client fails
+   */
+  public static void main(String[] args) throws Exception {
+
+    if (args.length < 4) {
+      System.err.println(
+          "Usage: java CaboClient <host or \"local\"> <port> <clients> <games per client> [seed]");
+      System.exit(2);
+    }
+    boolean local = args[0].equals("local");
+    String host = local ? "localhost" : args[0];
+    int clients = Integer.parseInt(args[2]);
+    int games = Integer.parseInt(args[3]);
+    long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+    CaboServer server = local ? new CaboServer(Integer.parseInt(args[1]), Ruleset.STANDARD) : null;
+    int port = local ? server.getPort() : Integer.parseInt(args[1]);
+
+    // connect every client first, so that all tables exist at the same time
+    List<CaboClient> connected = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      connected.add(new CaboClient(host, port));
+    }
+    if (local) {
+      while (server.getTableCount() < clients) {
+        Thread.sleep(10);
+      }
+      System.out.println("Tables: " + server.getTableCount());
+    }
+
+    AtomicLong moves = new AtomicLong();
+    ExecutorService executor = CaboServer.newThreadPerTaskExecutor("client");
+    long start = System.nanoTime();
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      CaboClient client = connected.get(i);
+      long clientSeed = seed + (long) i * games;
+      results.add(executor.submit(() -> {
+        try (client) {
+          for (int game = 0; game < games; game++) {
+            moves.addAndGet(client.playScripted(clientSeed + game));
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf("Games: %d, moves: %d in %.2f s%n", (long) clients * games, moves.get(),
+        seconds);
+    System.out.printf("Throughput: %.0f games/s, %.0f moves/s%n", clients * games / seconds,
+        moves.get() / seconds);
+    System.out.printf("Average round trip: %.1f us%n", seconds * 1e6 * clients / moves.get());
+
+    executor.shutdown();
+    if (local) {
+      server.close();
+    }
+
+  }
+
+}
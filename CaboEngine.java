@@ -0,0 +1,898 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The CaboEngine class holds the complete state of a game of CABO and implements its rules: the
+ * deck and discard pile, the players and their hands, whose turn it is and who declared CABO. It
+ * has no dependency on Processing, so a game can be played to the end without opening a window;
+ * CaboGame only renders an engine and translates mouse clicks into calls on it.
+ *
+ * Human and AI players use the same commands (see Moves); AI players decide which ones to give in
+ * {@link AIPlayer#decideMove(CaboEngine)} and {@link AIPlayer#decideCabo(CaboEngine)}.
+ */
+public class CaboEngine {
+
+  /**
+   * Enum representing the different action states in the game (e.g., swapping cards, peeking,
+   * spying, switching).
+   */
+  public enum ActionState {
+    NONE, SWAPPING, PEEKING, SPYING, SWITCHING
+  }
+
+  private static final GameListener[] NO_LISTENERS = {};
+  private static final int STATE_MAGIC = 0x53424143; // "CABS" in little-endian order
+  private static final int STATE_HEADER_SIZE = 16;
+  // zeros for the knowledge of a player who isn't an AI, enough for every deck there can be
+  private static final byte[] NO_KNOWLEDGE =
+      new byte[Long.BYTES + (Cards.MAX_CARDS + Long.SIZE - 1) / Long.SIZE * Long.BYTES];
+  private static final int MAX_MESSAGES = 15;
+
+  private ActionState actionState = ActionState.NONE;
+  private int caboPlayer;
+  private int currentPlayer;
+  private Deck deck;
+  private Deck discard;
+  private int drawnCard;
+  private boolean gameOver;
+  private boolean hasDrawn;
+  private Player[] players;
+  private SplittableRandom random;
+  private Ruleset rules;
+  private int turnCount;
+
+  // the most recent events of the game, or null if the game doesn't keep a log
+  private GameLog gameLog;
+  private GameListener[] listeners = NO_LISTENERS; // including the game log
+
+  /**
+   * Creates a new game for the given players by the standard rules, shuffles a fresh deck and deals
+   * four cards to each player.
+   *
+   * @param players the players at the table, in turn order
+   */
+  public CaboEngine(Player[] players) {
+    this(players, new SplittableRandom());
+  }
+
+  /**
+   * Creates a new game for the given players from a seed. The same seed and the same human moves
+   * always replay the same game.
+   *
+   * @param players the players at the table, in turn order
+   * @param seed    the seed of the game
+   */
+  public CaboEngine(Player[] players, long seed) {
+    this(players, new SplittableRandom(seed));
+  }
+
+  /**
+   * Creates a new game for the given players. The given source of randomness is the only one the
+   * game uses: it shuffles the deck and drives the AI players' decisions. It is owned by this game
+   * from now on; use {@link SplittableRandom#split()} to give independent streams to parallel games.
+   *
+   * @param players the players at the table, in turn order
+   * @param random  the source of randomness for this game
+   */
+  public CaboEngine(Player[] players, SplittableRandom random) {
+    this(players, Ruleset.STANDARD, random);
+  }
+
+  /**
+   * Creates a new game for the given players by the given rules. Besides the game log, the given
+   * listeners follow the events of the game from the start, including the deal.
+   *
+   * @param players   the players at the table, in turn order
+   * @param rules     the rules of the game
+   * @param random    the source of randomness for this game
+   * @param listeners the listeners of the game's events, such as a GameJournal
+   * @throws IllegalArgumentException if the number of players doesn't match the rules
+   */
+  public CaboEngine(Player[] players, Ruleset rules, SplittableRandom random,
+      GameListener... listeners) {
+
+    if (players.length != rules.getNumPlayers()) {
+      throw new IllegalArgumentException("The rules are for " + rules.getNumPlayers()
+          + " players, not " + players.length);
+    }
+    this.players = players;
+    this.random = random;
+    this.rules = rules;
+    this.gameLog = new GameLog(MAX_MESSAGES);
+    this.listeners = new GameListener[listeners.length + 1];
+    this.listeners[0] = gameLog;
+    System.arraycopy(listeners, 0, this.listeners, 1, listeners.length);
+    this.deck = new Deck(Deck.createDeck(rules.getDeckSize(), random));
+    this.discard = new Deck(rules.getDeckSize());
+    this.drawnCard = Cards.NONE;
+    this.currentPlayer = 0;
+    this.caboPlayer = -1;
+    log(GameEvent.gameStart(players.length, rules.getHandSize()));
+    log(GameEvent.of(GameEvent.TURN, currentPlayer));
+    deal();
+
+  }
+
+  /**
+   * Creates a copy of another game for simulation. The copy does not keep a log and has no
+   * listeners.
+   */
+  private CaboEngine(CaboEngine other, Player[] players, SplittableRandom random) {
+
+    this.actionState = other.actionState;
+    this.caboPlayer = other.caboPlayer;
+    this.currentPlayer = other.currentPlayer;
+    this.deck = new Deck(other.deck);
+    this.discard = new Deck(other.discard);
+    this.drawnCard = other.drawnCard;
+    this.gameOver = other.gameOver;
+    this.hasDrawn = other.hasDrawn;
+    this.players = players;
+    this.random = random;
+    this.rules = other.rules;
+    this.turnCount = other.turnCount;
+
+  }
+
+  /**
+   * Starts a new round at the same table, in place: every card goes back into the deck, which is
+   * shuffled and dealt again, and the AI players forget what they knew. Nothing is allocated, so
+   * whoever renders or follows the game keeps working with it, and the round is dealt exactly like
+   * a new game created from the same source of randomness. The listeners see the new round start
+   * like a new game, once the last one has ended, so every GAME_START they see is followed by a
+   * GAME_OVER.
+   *
+   * @param random the source of randomness for the new round, owned by this game from now on
+   * @throws IllegalStateException if the current round is not over yet
+   */
+  public void newRound(SplittableRandom random) {
+
+    if (!gameOver) {
+      throw new IllegalStateException("The round is not over yet");
+    }
+    this.random = random;
+    this.actionState = ActionState.NONE;
+    this.caboPlayer = -1;
+    this.currentPlayer = 0;
+    this.drawnCard = Cards.NONE;
+    this.gameOver = false;
+    this.hasDrawn = false;
+    this.turnCount = 0;
+    deck.refill(random);
+    discard.clear();
+    for (Player player : players) {
+      player.getHand().clear();
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).resetKnowledge();
+      }
+    }
+    if (gameLog != null) {
+      gameLog.clear();
+    }
+
+    log(GameEvent.gameStart(players.length, rules.getHandSize()));
+    log(GameEvent.of(GameEvent.TURN, currentPlayer));
+    deal();
+
+  }
+
+  private void deal() {
+    for (int i = 0; i < rules.getHandSize(); i++) {
+      for (int j = 0; j < players.length; j++) {
+        int card = deck.drawCard();
+        players[j].addCardToHand(card);
+        log(GameEvent.deal(j, i, card));
+        if (i < 2 && players[j] instanceof AIPlayer) {
+          ((AIPlayer) players[j]).seeCard(card); // AIs know their first two cards
+        }
+        if (j == 0) {
+          if (i < 2) {
+            players[j].getHand().setFaceUp(i, true);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of this game for simulation, for example by a search-based AI. In the copy every
+   * player is a plain AIPlayer playing the default strategy: AI players keep their knowledge, and
+   * human players are assumed to know the two cards they were shown at the start and to have seen
+   * the discard pile.
+   *
+   * @param random the source of randomness for the copy
+   * @return an independent copy of this game
+   */
+  public CaboEngine copy(SplittableRandom random) {
+    return copy(random, false);
+  }
+
+  /**
+   * Returns a copy of this game for an AI player to decide its move on, away from the thread that
+   * owns this game (see AITurnScheduler). Unlike in copy(), every AI player is copied with
+   * AIPlayer.copy(), so it keeps its class, its parameters and its endgame solver and decides
+   * exactly as it would in this game; human players are stood in for as in copy().
+   *
+   * @param random the source of randomness for the copy
+   * @return an independent copy of this game, whose players share nothing with this game's but
+   *         the AI players' endgame solvers
+   */
+  public CaboEngine snapshot(SplittableRandom random) {
+    return copy(random, true);
+  }
+
+  private CaboEngine copy(SplittableRandom random, boolean keepStrategies) {
+
+    Player[] copies = new Player[players.length];
+    for (int i = 0; i < players.length; i++) {
+      if (players[i] instanceof AIPlayer) {
+        AIPlayer ai = (AIPlayer) players[i];
+        copies[i] = keepStrategies ? ai.copy() : new AIPlayer(ai);
+      } else {
+        AIPlayer standIn = new AIPlayer(players[i], rules);
+        for (int j = 0; j < discard.size(); j++) {
+          standIn.seeCard(discard.getCard(j));
+        }
+        copies[i] = standIn;
+      }
+    }
+    return new CaboEngine(this, copies, random);
+
+  }
+
+  /**
+   * Puts this game back in the state of another game of the same table, typically a snapshot made
+   * with copy(): the deck, the discard pile, every hand, whose turn it is and what the AI players
+   * know. The game is changed in place, so whoever renders or follows it keeps working with it;
+   * nothing is logged.
+   *
+   * @param snapshot the game to copy the state from
+   * @throws IllegalArgumentException if the snapshot is not of a game with the same rules
+   */
+  public void restore(CaboEngine snapshot) {
+
+    if (snapshot.rules != rules || snapshot.players.length != players.length) {
+      throw new IllegalArgumentException("The snapshot is of a different table");
+    }
+
+    this.actionState = snapshot.actionState;
+    this.caboPlayer = snapshot.caboPlayer;
+    this.currentPlayer = snapshot.currentPlayer;
+    this.deck.copyFrom(snapshot.deck);
+    this.discard.copyFrom(snapshot.discard);
+    this.drawnCard = snapshot.drawnCard;
+    this.gameOver = snapshot.gameOver;
+    this.hasDrawn = snapshot.hasDrawn;
+    this.turnCount = snapshot.turnCount;
+
+    for (int i = 0; i < players.length; i++) {
+      players[i].getHand().copyFrom(snapshot.players[i].getHand());
+      if (players[i] instanceof AIPlayer && snapshot.players[i] instanceof AIPlayer) {
+        ((AIPlayer) players[i]).copyKnowledge((AIPlayer) snapshot.players[i]);
+      }
+    }
+
+  }
+
+  /**
+   * Returns the number of bytes saveState() writes for a game by the given rules. The size only
+   * depends on the size of the table and the number of decks.
+   *
+   * @param rules the rules of the game
+   * @return the size of the saved state, in bytes
+   */
+  public static int stateSize(Ruleset rules) {
+    int playerSize = 1 + rules.getHandSize() + Integer.BYTES + AIPlayer.knowledgeSize(rules);
+    return STATE_HEADER_SIZE + 2 * (1 + rules.getDeckSize()) + rules.getNumPlayers() * playerSize;
+  }
+
+  /**
+   * Writes the complete state of the game to a buffer, in a fixed little-endian layout of
+   * stateSize() bytes, so that it can be restored with restoreState(), in this process or another
+   * one. The layout is:
+   *
+   * <pre>
+   *  0  int   the magic number "CABS"
+   *  4  byte  the number of players
+   *  5  byte  the hand size
+   *  6  byte  the current player
+   *  7  byte  the player who declared CABO, or -1
+   *  8  byte  the action state (ordinal)
+   *  9  byte  the drawn card, or -1 (card ids and sizes are unsigned bytes, see Cards.fromByte())
+   * 10  byte  flags: 1 if the game is over, 2 if the current player has drawn
+   * 11  byte  the number of decks
+   * 12  int   the number of turns played
+   * 16        the deck, then the discard pile: the number of cards and as many card ids as there
+   *           are cards in the game (see Ruleset.getDeckSize()) each, top last
+   *           every player, in turn order: the number of cards and the card ids of the hand, an
+   *           int with a bit set for every face-up card, then the knowledge of an AI player (see
+   *           AIPlayer.saveKnowledge()) or zeros
+   * </pre>
+   *
+   * Players' names, the rules and the listeners are not part of the state, but the size of the
+   * table and the number of decks are checked when the state is restored.
+   *
+   * @param buffer the buffer to write to, at its position; its byte order is set to little-endian
+   * @throws java.nio.BufferOverflowException if there are fewer than stateSize() bytes remaining
+   */
+  public void saveState(ByteBuffer buffer) {
+
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(STATE_MAGIC);
+    buffer.put((byte) players.length).put((byte) rules.getHandSize());
+    buffer.put((byte) currentPlayer).put((byte) caboPlayer).put((byte) actionState.ordinal());
+    buffer.put((byte) drawnCard);
+    buffer.put((byte) ((gameOver ? 1 : 0) | (hasDrawn ? 2 : 0))).put((byte) rules.getNumDecks());
+    buffer.putInt(turnCount);
+    saveCards(buffer, deck, rules.getDeckSize());
+    saveCards(buffer, discard, rules.getDeckSize());
+
+    for (Player player : players) {
+      Hand hand = player.getHand();
+      saveCards(buffer, hand, rules.getHandSize());
+      int faceUp = 0;
+      for (int j = 0; j < hand.size(); j++) {
+        faceUp |= hand.isFaceUp(j) ? 1 << j : 0;
+      }
+      buffer.putInt(faceUp);
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).saveKnowledge(buffer);
+      } else {
+        buffer.put(NO_KNOWLEDGE, 0, AIPlayer.knowledgeSize(rules));
+      }
+    }
+
+  }
+
+  private static void saveCards(ByteBuffer buffer, Deck cards, int capacity) {
+
+    buffer.put((byte) cards.size());
+    for (int i = 0; i < capacity; i++) {
+      buffer.put((byte) (i < cards.size() ? cards.getCard(i) : Cards.NONE));
+    }
+
+  }
+
+  /**
+   * Puts this game in the state that saveState() wrote to a buffer, in place, like restore(). The
+   * AI players get back what they knew; the knowledge saved for other players is skipped. Nothing
+   * is logged.
+   *
+   * @param buffer the buffer to read from, at its position; its byte order is set to little-endian
+   * @throws IllegalArgumentException if the buffer doesn't hold a saved state of a game at a table
+   *                                  of the same size, with the same number of decks
+   */
+  public void restoreState(ByteBuffer buffer) {
+
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    int start = buffer.position();
+    if (buffer.remaining() < stateSize(rules) || buffer.getInt() != STATE_MAGIC
+        || buffer.get() != players.length || buffer.get() != rules.getHandSize()
+        || buffer.get(start + 11) != rules.getNumDecks()) {
+      throw new IllegalArgumentException("Not a saved state of a game of " + players.length
+          + " players with " + rules.getHandSize() + " cards each and " + rules.getNumDecks()
+          + " deck(s)");
+    }
+
+    this.currentPlayer = buffer.get();
+    this.caboPlayer = buffer.get();
+    this.actionState = ActionState.values()[buffer.get()];
+    this.drawnCard = Cards.fromByte(buffer.get());
+    int flags = buffer.get();
+    this.gameOver = (flags & 1) != 0;
+    this.hasDrawn = (flags & 2) != 0;
+    buffer.get(); // the number of decks, checked above
+    this.turnCount = buffer.getInt();
+    restoreCards(buffer, deck, rules.getDeckSize());
+    restoreCards(buffer, discard, rules.getDeckSize());
+
+    for (Player player : players) {
+      Hand hand = player.getHand();
+      restoreCards(buffer, hand, rules.getHandSize());
+      int faceUp = buffer.getInt();
+      for (int j = 0; j < hand.size(); j++) {
+        hand.setFaceUp(j, (faceUp & (1 << j)) != 0);
+      }
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).restoreKnowledge(buffer);
+      } else {
+        buffer.position(buffer.position() + AIPlayer.knowledgeSize(rules));
+      }
+    }
+
+  }
+
+  private static void restoreCards(ByteBuffer buffer, Deck cards, int capacity) {
+
+    cards.size = buffer.get() & 0xFF;
+    for (int i = 0; i < capacity; i++) {
+      cards.cardList[i] = Cards.fromByte(buffer.get());
+    }
+    cards.version++;
+
+  }
+
+  /**
+   * Reshuffles every card the given player cannot see: the deck and the cards at the positions it
+   * has no knowledge of. The result is one of the games that are consistent with everything the
+   * player knows, which is how search-based AIs sample the hidden information.
+   *
+   * @param observer the player whose knowledge must be respected
+   * @param random   the source of randomness for the reshuffle
+   */
+  public void determinize(AIPlayer observer, SplittableRandom random) {
+
+    int[] hidden = new int[deck.size() + players.length * rules.getHandSize()];
+    int count = 0;
+    for (int i = 0; i < deck.size(); i++) {
+      hidden[count++] = deck.getCard(i);
+    }
+    for (Player player : players) {
+      Hand hand = player.getHand();
+      for (int j = 0; j < hand.size(); j++) {
+        if (!observer.getCardKnowledge(player.getLabel(), j)) {
+          hidden[count++] = hand.getCard(j);
+        }
+      }
+    }
+
+    Deck.shuffle(hidden, count, random);
+
+    count = 0;
+    for (int i = 0; i < deck.size(); i++) {
+      deck.cardList[i] = hidden[count++];
+    }
+    for (Player player : players) {
+      Hand hand = player.getHand();
+      for (int j = 0; j < hand.size(); j++) {
+        if (!observer.getCardKnowledge(player.getLabel(), j)) {
+          hand.swap(hidden[count++], j);
+        }
+      }
+    }
+
+  }
+
+  ///////////////////////////////////////// PLAYER ACTIONS /////////////////////////////////////////
+
+  /**
+   * Gives a command for the current player.
+   *
+   * @param move the move to make, as encoded by Moves
+   */
+  public void applyMove(int move) {
+
+    switch (Moves.type(move)) {
+      case Moves.DRAW -> drawFromDeck();
+      case Moves.DISCARD -> discardDrawnCard();
+      case Moves.SWAP -> swapDrawnCard(Moves.slot(move));
+      case Moves.PEEK -> peek(Moves.slot(move));
+      case Moves.SPY -> spy(Moves.seat(move), Moves.otherSlot(move));
+      case Moves.SWITCH -> switchCards(Moves.slot(move), Moves.seat(move), Moves.otherSlot(move));
+      case Moves.CABO -> declareCabo();
+      default -> nextTurn();
+    }
+
+  }
+
+  /**
+   * Returns whether the current player may make a move now, following the same rules as the
+   * buttons of CaboGame: draw or declare CABO at the start of the turn, then use the drawn card
+   * (discard it, swap it in or use its action), and end the turn once a card has been drawn. CABO
+   * can only be declared once per game. AI players declare CABO at the end of their turn instead
+   * (see performAITurn()), which this method does not allow.
+   *
+   * @param move the move, as encoded by Moves
+   * @return true if applyMove() may be called with the move
+   */
+  public boolean isLegal(int move) {
+
+    if (gameOver) {
+      return false;
+    }
+    int handSize = rules.getHandSize();
+    boolean slot = Moves.slot(move) < handSize;
+    boolean otherSlot = Moves.seat(move) < players.length && Moves.seat(move) != currentPlayer
+        && Moves.otherSlot(move) < handSize;
+    int action = drawnCard == Cards.NONE ? Cards.ACTION_NONE : rules.action(drawnCard);
+
+    return switch (Moves.type(move)) {
+      case Moves.DRAW -> !hasDrawn;
+      case Moves.CABO -> !hasDrawn && caboPlayer == -1;
+      case Moves.DISCARD -> drawnCard != Cards.NONE;
+      case Moves.SWAP -> drawnCard != Cards.NONE && slot;
+      case Moves.PEEK -> action == Cards.ACTION_PEEK && slot;
+      case Moves.SPY -> action == Cards.ACTION_SPY && otherSlot;
+      case Moves.SWITCH -> action == Cards.ACTION_SWITCH && slot && otherSlot;
+      case Moves.END_TURN -> hasDrawn;
+      default -> false;
+    };
+
+  }
+
+  /**
+   * Draws a card from the deck for the current player. If the deck is empty, the game ends.
+   */
+  public void drawFromDeck() {
+
+    if (deck.isEmpty()) {
+      endGame(true);
+    } else {
+      drawnCard = deck.drawCard();
+      hasDrawn = true;
+      if (players[currentPlayer] instanceof AIPlayer) {
+        ((AIPlayer) players[currentPlayer]).seeCard(drawnCard);
+      }
+      log(GameEvent.draw(currentPlayer, drawnCard));
+    }
+
+  }
+
+  /**
+   * Declares CABO for the current player and ends their turn. Every other player gets one more
+   * turn before the game ends.
+   */
+  public void declareCabo() {
+
+    log(GameEvent.of(GameEvent.CABO, currentPlayer));
+    caboPlayer = currentPlayer;
+    nextTurn();
+
+  }
+
+  /**
+   * Puts the drawn card on the discard pile without using it.
+   */
+  public void discardDrawnCard() {
+
+    log(GameEvent.discard(currentPlayer, drawnCard));
+    finishDrawnCard();
+
+  }
+
+  /**
+   * Swaps the drawn card with the card at the given index of the current player's hand and puts
+   * the swapped-out card on the discard pile. The other AI players forget what they knew about
+   * that position; the current player, if it is an AI, knows the card it put there.
+   *
+   * @param index the index of the card in the current player's hand
+   */
+  public void swapDrawnCard(int index) {
+
+    Hand hand = players[currentPlayer].getHand();
+    int oldCard = hand.swap(drawnCard, index);
+    discardCard(oldCard);
+    log(GameEvent.swap(currentPlayer, index, oldCard));
+    drawnCard = Cards.NONE;
+    actionState = ActionState.NONE;
+
+    int label = players[currentPlayer].getLabel();
+    for (int i = 0; i < players.length; i++) {
+      if (players[i] instanceof AIPlayer) {
+        ((AIPlayer) players[i]).setCardKnowledge(label, index, i == currentPlayer);
+      }
+    }
+
+  }
+
+  /**
+   * Reveals the card at the given index of the current player's hand and discards the drawn
+   * action card.
+   *
+   * @param index the index of the card in the current player's hand
+   */
+  public void peek(int index) {
+
+    Player player = players[currentPlayer];
+    player.getHand().setFaceUp(index, true);
+    if (player instanceof AIPlayer) {
+      ((AIPlayer) player).setCardKnowledge(player.getLabel(), index, true);
+      ((AIPlayer) player).seeCard(player.getHand().getCard(index));
+    }
+    log(GameEvent.peek(currentPlayer, index, player.getHand().getCard(index)));
+    finishDrawnCard();
+
+  }
+
+  /**
+   * Reveals a card from another player's hand and discards the drawn action card.
+   *
+   * @param seat  the index of the player being spied on
+   * @param index the index of the card in that player's hand
+   */
+  public void spy(int seat, int index) {
+
+    Player player = players[currentPlayer];
+    players[seat].getHand().setFaceUp(index, true);
+    if (player instanceof AIPlayer) {
+      ((AIPlayer) player).setCardKnowledge(players[seat].getLabel(), index, true);
+      ((AIPlayer) player).seeCard(players[seat].getHand().getCard(index));
+    }
+    log(GameEvent.spy(currentPlayer, seat, index, players[seat].getHand().getCard(index)));
+    finishDrawnCard();
+
+  }
+
+  /**
+   * Switches a card from the current player's hand with a card from another player's hand and
+   * discards the drawn action card. Every AI player saw the switch, so whatever it knew about the
+   * two cards moves with them.
+   *
+   * @param myIndex    the index of the card in the current player's hand
+   * @param seat       the index of the other player
+   * @param otherIndex the index of the card in the other player's hand
+   */
+  public void switchCards(int myIndex, int seat, int otherIndex) {
+
+    Player player = players[currentPlayer];
+    player.getHand().switchCards(myIndex, players[seat].getHand(), otherIndex);
+    log(GameEvent.switchCards(currentPlayer, myIndex, seat, otherIndex));
+    finishDrawnCard();
+
+    int label = player.getLabel();
+    int otherLabel = players[seat].getLabel();
+    for (Player observer : players) {
+      if (observer instanceof AIPlayer) {
+        ((AIPlayer) observer).switchCardKnowledge(label, myIndex, otherLabel, otherIndex);
+      }
+    }
+
+  }
+
+  private void finishDrawnCard() {
+
+    discardCard(drawnCard);
+    drawnCard = Cards.NONE;
+    actionState = ActionState.NONE;
+
+  }
+
+  /**
+   * Puts a card face-up on the discard pile, where every AI player sees it.
+   */
+  private void discardCard(int card) {
+
+    discard.addCard(card);
+    for (Player player : players) {
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).seeCard(card);
+      }
+    }
+
+  }
+
+  /**
+   * Advances the game to the next player's turn. Hides all players' cards, discards any card that
+   * is still drawn, updates the current player and checks for the game-over condition.
+   */
+  public void nextTurn() {
+
+    for (Player player : players) {
+      player.getHand().hideAll();
+    }
+
+    if (drawnCard != Cards.NONE) {
+      discardCard(drawnCard);
+      drawnCard = Cards.NONE;
+    }
+
+    currentPlayer++;
+    if (currentPlayer >= players.length) {
+      currentPlayer = 0;
+    }
+    turnCount++;
+
+    log(GameEvent.of(GameEvent.TURN, currentPlayer));
+    actionState = ActionState.NONE;
+    hasDrawn = false;
+
+    if (caboPlayer == currentPlayer) {
+      endGame(false);
+    }
+
+  }
+
+  private void endGame(boolean deckOut) {
+
+    gameOver = true;
+    for (int i = 0; i < players.length; i++) {
+      log(GameEvent.score(i, getScore(i)));
+    }
+    log(GameEvent.gameOver(getWinner(), deckOut));
+
+  }
+
+  /**
+   * Reveals every card at the table, for the end of the game.
+   */
+  public void revealAll() {
+
+    for (Player player : players) {
+      Hand hand = player.getHand();
+      for (int j = 0; j < hand.size(); j++) {
+        hand.setFaceUp(j, true);
+      }
+    }
+
+  }
+
+  ///////////////////////////////////////////// AI TURNS /////////////////////////////////////////////
+
+  /**
+   * Performs the AI player's turn: draws a card, lets the AI decide what to do with it, and then
+   * lets it decide whether to declare CABO or simply end its turn. If the deck is empty, the game
+   * ends.
+   */
+  public void performAITurn() {
+    AIPlayer aiPlayer = (AIPlayer) players[currentPlayer];
+
+    // Draw a card from the deck
+    if (!beginAITurn()) {
+      return;
+    }
+
+    // Use or discard the drawn card
+    applyMove(aiPlayer.decideMove(this));
+
+    // AI may declare Cabo if hand value is low enough
+    if (caboPlayer == -1 && aiPlayer.decideCabo(this)) {
+      declareCabo();
+    } else {
+      nextTurn();
+    }
+  }
+
+  /**
+   * Starts the AI player's turn by drawing a card for it. The AI then decides what to do with the
+   * card and whether to declare CABO, either right away (see performAITurn()) or on another thread
+   * (see AITurnScheduler).
+   *
+   * @return true if the AI has drawn a card, false if the deck was empty and the game has ended
+   */
+  public boolean beginAITurn() {
+
+    log(GameEvent.of(GameEvent.AI_TURN, currentPlayer));
+    drawFromDeck();
+    return !gameOver;
+
+  }
+
+  //////////////////////////////////////////// GAME STATE ////////////////////////////////////////////
+
+  /**
+   * Reports an event to the game log and the other listeners of the game, if there are any.
+   */
+  private void log(long event) {
+    for (GameListener listener : listeners) {
+      listener.onEvent(event);
+    }
+  }
+
+  /**
+   * Adds a listener that follows the events of the game from now on, for example to a game restored
+   * from a saved state (see restoreState()).
+   *
+   * @param listener the listener
+   */
+  public void addListener(GameListener listener) {
+
+    listeners = Arrays.copyOf(listeners, listeners.length + 1);
+    listeners[listeners.length - 1] = listener;
+
+  }
+
+  /**
+   * Returns the final score of the player in the given seat, which is the total of their hand.
+   *
+   * @param seat the index of the player
+   * @return the player's score
+   */
+  public int getScore(int seat) {
+    return rules.handScore(players[seat].getHand());
+  }
+
+  /**
+   * Returns the index of the player with the lowest score, or -1 if the lowest score is shared.
+   *
+   * @return the index of the winner, or -1 if there is a tie
+   */
+  public int getWinner() {
+
+    int winnerIndex = -1;
+    int winnerScore = Integer.MAX_VALUE;
+    boolean isTie = false;
+
+    for (int i = 0; i < players.length; i++) {
+      int score = getScore(i);
+      if (score < winnerScore) {
+        winnerIndex = i;
+        winnerScore = score;
+        isTie = false;
+      } else if (score == winnerScore) {
+        isTie = true;
+      }
+    }
+
+    return isTie ? -1 : winnerIndex;
+
+  }
+
+  public ActionState getActionState() {
+    return actionState;
+  }
+
+  public void setActionState(ActionState actionState) {
+    this.actionState = actionState;
+  }
+
+  public int getCaboPlayer() {
+    return caboPlayer;
+  }
+
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  public Deck getDeck() {
+    return deck;
+  }
+
+  public Deck getDiscard() {
+    return discard;
+  }
+
+  /**
+   * Returns the card the current player has drawn and not yet used.
+   *
+   * @return the id of the drawn card, or Cards.NONE if there is none
+   */
+  public int getDrawnCard() {
+    return drawnCard;
+  }
+
+  /**
+   * Returns the log of the most recent events of the game.
+   *
+   * @return the game log, or null if the game doesn't keep one
+   */
+  public GameLog getGameLog() {
+    return gameLog;
+  }
+
+  public Player[] getPlayers() {
+    return players;
+  }
+
+  /**
+   * Returns the source of randomness of this game, for the AI players' decisions.
+   *
+   * @return the game's random stream
+   */
+  public SplittableRandom getRandom() {
+    return random;
+  }
+
+  public Ruleset getRules() {
+    return rules;
+  }
+
+  public int getTurnCount() {
+    return turnCount;
+  }
+
+  /**
+   * Returns whether the current player has already drawn a card this turn.
+   *
+   * @return true if a card has been drawn this turn, false otherwise
+   */
+  public boolean hasDrawn() {
+    return hasDrawn;
+  }
+
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+}
@@ -1,53 +1,89 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 import processing.core.PApplet;
+import processing.core.PGraphics;
 
 /**
- * The CaboGame class implements the main game logic for the card game CABO. It manages the deck,
- * discard pile, players, game state, and user interactions.
+ * The CaboGame class is the graphical front end for the card game CABO. The game state and rules
+ * live in a CaboEngine; this class renders the engine and turns user interactions into calls on it.
  */
 public class CaboGame extends processing.core.PApplet {
 
+  private static final String[] NAMES = {"Cyntra", "Avalon", "Balthor", "Ophira"};
+
+  // the distance between the mouse target ids of two seats' cards; Ruleset caps the cards at the
+  // table at Long.SIZE, so no hand holds more cards (see cardTarget())
+  private static final int SEAT_STRIDE = Long.SIZE;
+
+  // the game state each action button puts the engine in, indexed by the drawn card's action
+  private static final CaboEngine.ActionState[] ACTION_STATES = {CaboEngine.ActionState.NONE,
+      CaboEngine.ActionState.PEEKING, CaboEngine.ActionState.SPYING,
+      CaboEngine.ActionState.SWITCHING};
+
+  private AITurnScheduler aiScheduler;
   private Button[] buttons;
-  private int caboPlayer;
-  private int currentPlayer;
-  private Deck deck;
-  private Deck discard;
-  private BaseCard drawnCard;
-  private boolean gameOver;
-  private Player[] players;
+  private CaboEngine engine;
+  private HitGrid hitGrid; // the buttons and the cards in the hands, see findHoverTarget()
+  private int hoverTarget = -1; // the button or card under the mouse, see findHoverTarget()
+  private GameJournal journal; // every game played is recorded in cabo.journal
+  private Replay replay; // the recording of this game, or the recorded game being played back
+  private boolean replaying;
+  private int replayTurn;
+  private Ruleset rules;
   private int selectedCardFromCurrentPlayer;
 
-  /**
-   * Enum representing the different action states in the game (e.g., swapping cards, peeking,
-   * spying, switching).
-   * 
-   * This allows us to easily restrict the possible values of a variable.
-   */
-  private enum ActionState {
-    NONE, SWAPPING, PEEKING, SPYING, SWITCHING
-  }
-
-  private ActionState actionState = ActionState.NONE;
+  // the layout, which grows with the number of players and the hand size (see settings())
+  private int buttonY; // the y-coordinate of the buttons
+  private int pileX; // the x-coordinate of the deck; the discard pile and the log are to its right
+  private int seatSpacing; // the distance between the hands of two seats
 
-  // provided data fields for tracking the players' moves through the game
-  private ArrayList<String> gameMessages = new ArrayList<>();
+  // the cached layers of the scene, each re-rendered only when its part of the game changes
+  private SceneLayer buttonLayer;
+  private SceneLayer[] handLayers;
+  private SceneLayer logLayer;
+  private SceneLayer pileLayer;
+  private SceneLayer tableLayer;
 
   /**
    * Launch the game window; PROVIDED. Note: the argument to PApplet.main() must match the name of
    * this class, or it won't run!
-   * 
-   * @param args unused
+   *
+   * @param args optionally the seed of the game, to replay a previous game, and then optionally a
+   *             properties file with house rules (see Ruleset); or "replay", a replay file (see
+   *             Replay) and optionally the house rules it was played by, to play back a game
    */
   public static void main(String[] args) {
-    PApplet.main("CaboGame");
+    PApplet.main("CaboGame", args);
   }
 
   /**
-   * Sets up the initial window size for the game; PROVIDED.
+   * Sets up the initial window size for the game, which fits the table of the rules: up to four
+   * seats with hands of four cards fit the standard 1000x800 window, and more seats or cards make
+   * the window taller or wider.
    */
   @Override
   public void settings() {
-    size(1000, 800);
+
+    // when playing back a game, the replay file comes before the rules
+    replaying = args != null && args.length > 1 && args[0].equals("replay");
+    int rulesArg = replaying ? 2 : 1;
+    rules = Ruleset.STANDARD;
+    if (args != null && args.length > rulesArg) {
+      try {
+        rules = Ruleset.load(args[rulesArg]);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read " + args[rulesArg], e);
+      }
+    }
+
+    int numPlayers = rules.getNumPlayers();
+    seatSpacing = Math.max(100, Math.min(150, 620 / numPlayers));
+    pileX = Math.max(500, Hand.cardX(rules.getHandSize()) + 50);
+    buttonY = Math.max(700, handY(numPlayers - 1) + 110);
+    size(1000 + pileX - 500, buttonY + 100);
+
   }
 
   /**
@@ -58,131 +94,149 @@ public class CaboGame extends processing.core.PApplet {
 
     textFont(createFont("Arial", 16));
 
-    // TODO: setProcessing for the classes which require it
     BaseCard.setProcessing(this);
     Deck.setProcessing(this);
     Button.setProcessing(this);
+    CardAtlas.load(this);
 
     deckCheck();
 
-    // TODO: set up deck and discard pile
-    deck = new Deck(Deck.createDeck());
-    discard = new Deck(new ArrayList<BaseCard>());
-    drawnCard = null;
-
-    // TODO: set up players array and deal their cards
-    players = new Player[4];
-    players[0] = new Player("Cyntra", 0, false);
-    players[1] = new AIPlayer("Avalon", 1, true);
-    players[2] = new AIPlayer("Balthor", 2, true);
-    players[3] = new AIPlayer("Ophira", 3, true);
-    currentPlayer = 0;
-    caboPlayer = -1;
+    if (replaying) {
+      try {
+        replay = Replay.load(Paths.get(args[1]));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read " + args[1], e);
+      }
+    }
+
+    // set up players array; the engine shuffles the deck and deals their cards. When playing back
+    // a game, every player is a computer, so nobody can give commands
+    Player[] players = new Player[rules.getNumPlayers()];
+    players[0] = new Player(NAMES[0], 0, replaying, rules.getHandSize());
+    for (int i = 1; i < players.length; i++) {
+      String name = i < NAMES.length ? NAMES[i] : "AI " + i;
+      AIPlayer ai = new AIPlayer(name, i, true, rules);
+      ai.setEndgameSolver(new EndgameSolver(rules));
+      players[i] = ai;
+    }
+
+    if (replaying) {
+      engine = replay.newGame(players, rules);
+    } else {
+      long seed = (args != null && args.length > 0) ? Long.parseLong(args[0])
+          : new SplittableRandom().nextLong();
+      replay = new Replay(seed);
+      try {
+        journal = new GameJournal(Paths.get(sketchPath("cabo.journal")), false);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot open the game journal", e);
+      }
+      engine = new CaboEngine(players, rules, new SplittableRandom(seed), journal, replay,
+          CaboMetrics.get());
+
+      // the AI players think on a background thread and every decision triggers a redraw
+      aiScheduler = new AITurnScheduler(engine, this::redraw);
+    }
     selectedCardFromCurrentPlayer = -1;
-    setGameStatus("Turn for " + players[currentPlayer].getName());
-    deal();
 
-    // TODO: set up buttons and update their states for the beginning of the game
+    // set up buttons and update their states for the beginning of the game
     buttons = new Button[5];
-    buttons[0] = new Button("Draw from Deck", 50, 700, 150, 40);
-    buttons[1] = new Button("Swap a Card", 220, 700, 150, 40);
-    buttons[2] = new Button("Declare Cabo", 390, 700, 150, 40);
-    buttons[3] = new Button("Use Action", 390 + 170, 700, 150, 40);
-    buttons[4] = new Button("End Turn", 390 + 170 + 170, 700, 150, 40);
+    buttons[0] = new Button("Draw from Deck", 50, buttonY, 150, 40);
+    buttons[1] = new Button("Swap a Card", 220, buttonY, 150, 40);
+    buttons[2] = new Button("Declare Cabo", 390, buttonY, 150, 40);
+    buttons[3] = new Button("Use Action", 390 + 170, buttonY, 150, 40);
+    buttons[4] = new Button("End Turn", 390 + 170 + 170, buttonY, 150, 40);
 
     updateButtonStates();
 
-    // TODO: update the gameMessages log: "Turn for "+currentPlayer.name
-
-  }
-
-  private void deal() {
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        BaseCard card = deck.drawCard();
-        if (j == 0) {
-          if (i < 2) {
-            card.setFaceUp(true);
-          }
-        }
-        players[j].addCardToHand(card);
+    // the buttons and the card slots never move, so the mouse targets are laid out once
+    hitGrid = new HitGrid(width, height, CardAtlas.CARD_WIDTH);
+    for (int i = 0; i < buttons.length; i++) {
+      Button button = buttons[i];
+      hitGrid.add(i, button.getX(), button.getY(), button.getWidth(), button.getHeight());
+    }
+    for (int i = 0; i < players.length; i++) {
+      for (int j = 0; j < rules.getHandSize(); j++) {
+        hitGrid.add(cardTarget(i, j), Hand.cardX(j), handY(i), CardAtlas.CARD_WIDTH,
+            CardAtlas.CARD_HEIGHT);
       }
     }
+
+    tableLayer = new SceneLayer(this, 0, 0, width, height);
+    pileLayer = new SceneLayer(this, pileX, 80, 151, CardAtlas.CARD_HEIGHT + 1);
+    handLayers = new SceneLayer[players.length];
+    for (int i = 0; i < players.length; i++) {
+      handLayers[i] = new SceneLayer(this, Hand.cardX(0), handY(i), 60 * rules.getHandSize(),
+          CardAtlas.CARD_HEIGHT + 1);
+    }
+    logLayer = new SceneLayer(this, width - 600, 180, 600, 310);
+    buttonLayer = new SceneLayer(this, 50, buttonY, 831, 41);
+
+    // only redraw when something changes: a click, the mouse moving onto or off a button or card,
+    // or an AI decision
+    noLoop();
+
   }
 
   /**
-   * Console-only output for verifying the setup of the card objects and the deck containing them
+   * Console-only output for verifying the setup of the cards and the deck containing them
    */
   public void deckCheck() {
 
-    ArrayList<BaseCard> deck = Deck.createDeck();
+    int[] deck = Deck.createDeck();
 
     int cardCounter = 0;
     int peekCounter = 0;
     int spyCounter = 0;
     int switchCounter = 0;
-    int clubCounter = 0;
-    int diamondCounter = 0;
-    int heartCounter = 0;
-    int spadeCounter = 0;
+    int[] suitCounters = new int[4];
     boolean kod = false;
 
-    for (int i = 0; i < 52; i++) {
-
-      BaseCard card = deck.get(i);
+    for (int card : deck) {
 
       cardCounter++;
 
-      if (card.toString().equals("Diamonds 13")) {
-        if (card.getRank() == -1) {
+      if (Cards.suit(card) == Cards.DIAMONDS && Cards.rank(card) == 13) {
+        if (Cards.score(card) == -1) {
           kod = true;
         }
       }
 
-      if (card.getRank() >= 7 && card.getRank() <= 12) {
-        if (((ActionCard) card).getActionType().equals("peek")) {
-          peekCounter++;
-        } else if (((ActionCard) card).getActionType().equals("spy")) {
-          spyCounter++;
-        } else if (((ActionCard) card).getActionType().equals("switch")) {
-          switchCounter++;
-        }
+      if (Cards.action(card) == Cards.ACTION_PEEK) {
+        peekCounter++;
+      } else if (Cards.action(card) == Cards.ACTION_SPY) {
+        spyCounter++;
+      } else if (Cards.action(card) == Cards.ACTION_SWITCH) {
+        switchCounter++;
       }
 
-      if (card.toString().startsWith("Clubs")) {
-        clubCounter++;
-      } else if (card.toString().startsWith("Diamonds")) {
-        diamondCounter++;
-      } else if (card.toString().startsWith("Hearts")) {
-        heartCounter++;
-      } else if (card.toString().startsWith("Spades")) {
-        spadeCounter++;
-      }
+      suitCounters[Cards.suit(card)]++;
 
     }
 
-    // TODO: verify that there are 52 cards in the deck
+    // verify that there are 52 cards in the deck
     if (cardCounter != 52) {
       System.out.println("Deck size is 52: false");
     } else {
       System.out.println("Deck size is 52: true");
     }
 
-    // TODO: verify that there are 8 of each type of ActionCard
+    // verify that there are 8 of each type of action card
     if (spyCounter == 8 && peekCounter == 8 && switchCounter == 8) {
       System.out.println("Found correct numbers of action cards: true");
     } else {
       System.out.println("Found correct numbers of action cards: false");
     }
 
-    // TODO: verify that there are 13 of each suit
-    if (clubCounter == 13 && diamondCounter == 13 && heartCounter == 13 && spadeCounter == 13) {
+    // verify that there are 13 of each suit
+    if (suitCounters[Cards.CLUBS] == 13 && suitCounters[Cards.DIAMONDS] == 13
+        && suitCounters[Cards.HEARTS] == 13 && suitCounters[Cards.SPADES] == 13) {
       System.out.println("Found correct numbers of each suit: true");
     } else {
       System.out.println("Found correct numbers of each suit: false");
     }
 
-    // TODO: verify that the king of diamonds' getRank() returns -1
+    // verify that the king of diamonds scores -1
     if (kod) {
       System.out.println("King of diamonds found!");
     }
@@ -192,104 +246,206 @@ public class CaboGame extends processing.core.PApplet {
   /**
    * Updates the state of the action buttons based on the current game state. Activates or
    * deactivates buttons depending on whether it's the start of a player's turn, a card has been
-   * drawn, or the player is an AI.
+   * drawn, the drawn card has already been used, or the player is an AI.
    */
   public void updateButtonStates() {
-    // TODO: if the current player is a computer, deactivate all buttons
-    if (players[currentPlayer].isComputer()) {
+
+    Player player = engine.getPlayers()[engine.getCurrentPlayer()];
+    int drawnCard = engine.getDrawnCard();
+
+    // if the current player is a computer, deactivate all buttons
+    if (player.isComputer()) {
 
       for (Button button : buttons) {
         button.setActive(false);
       }
 
-    } else {
-      // TODO: otherwise, if no card has been drawn, activate accordingly (see writeup)
-      if (drawnCard == null) {
+    }
+    // otherwise, if no card has been drawn, the player may draw or declare CABO
+    else if (!engine.hasDrawn()) {
 
-        buttons[0].setActive(true);
-        buttons[1].setActive(false);
-        buttons[2].setActive(true);
-        buttons[3].setActive(false);
-        buttons[4].setActive(false);
+      buttons[0].setActive(true);
+      buttons[1].setActive(false);
+      buttons[2].setActive(true);
+      buttons[3].setActive(false);
+      buttons[4].setActive(false);
 
+    }
+    // otherwise, if a card has been drawn, the player may swap, use its action or end the turn
+    else if (drawnCard != Cards.NONE) {
+
+      buttons[0].setActive(false);
+      buttons[1].setActive(true);
+      buttons[2].setActive(false);
+      buttons[4].setActive(true);
+
+      if (engine.getRules().isAction(drawnCard)) {
+        buttons[3].setActive(true);
+        buttons[3].setLabel(Cards.actionLabel(engine.getRules().action(drawnCard)));
+      } else {
+        buttons[3].setActive(false);
       }
-      // TODO: otherwise, if a card has been drawn, activate accordingly (see writeup)
-      else {
-        buttons[0].setActive(false);
-        buttons[1].setActive(true);
-        buttons[2].setActive(false);
-        buttons[4].setActive(true);
-
-        if (drawnCard.getRank() >= 7 && drawnCard.getRank() <= 12) {
-          buttons[3].setActive(true);
-          buttons[3].setLabel(((ActionCard) drawnCard).getActionType().toUpperCase());
-        } else {
-          buttons[3].setActive(false);
-        }
-      }
+
+    }
+    // otherwise, the drawn card has been used and all the player can do is end the turn
+    else {
+
+      buttons[0].setActive(false);
+      buttons[1].setActive(false);
+      buttons[2].setActive(false);
+      buttons[3].setActive(false);
+      buttons[4].setActive(true);
+
     }
 
   }
 
   /**
-   * Renders the graphical user interface; also handles some game logic for the computer players.
+   * Renders the graphical user interface; also applies the computer players' decisions, which are
+   * made on a background thread. The draw loop is stopped between moves, so this only runs when
+   * redraw() is called.
    */
   @Override
   public void draw() {
-    background(0, 128, 0);
+    long frameStart = System.nanoTime();
+    Player[] players = engine.getPlayers();
 
-    // TODO: draw the deck and discard pile
-    textSize(16);
-    fill(255);
-    text("Deck:", 520, 60);
-    text("Discard Pile:", 644, 60);
-    deck.draw(500, 80, false);
-    discard.draw(600, 80, true);
+    // handle the computer players' turns
+    if (aiScheduler != null && aiScheduler.update()) {
+      updateButtonStates();
+    }
 
-    // TODO: draw the players' hands
-    for (int i = 0; i < 4; i++) {
-      text(players[i].getName(), 50, 45 + (150 * i));
-      players[i].getHand().draw(60 + (150 * i));
+    // at the end of the game, or when playing a game back, every card is shown
+    if (engine.isGameOver() || replaying) {
+      engine.revealAll();
     }
 
-    // TODO: draw the buttons
-    for (Button button : buttons) {
-      button.draw();
+    // the table, labels and player names never change
+    if (tableLayer.isStale(0)) {
+      PGraphics g = tableLayer.beginDraw(0);
+      g.background(0, 128, 0);
+      g.textSize(16);
+      g.textAlign(CENTER, CENTER);
+      g.fill(255);
+      g.text("Deck:", pileX + 20, 60);
+      g.text("Discard Pile:", pileX + 144, 60);
+      for (int i = 0; i < players.length; i++) {
+        g.text(players[i].getName(), 50, handY(i) - 15);
+      }
+      tableLayer.endDraw();
     }
+    tableLayer.draw();
 
-    // TODO: show the drawn card, if there is one
-    if (drawnCard != null) {
-      drawnCard.setFaceUp(true);
-      drawnCard.draw(500, 500);
+    // draw the deck and discard pile
+    Deck deck = engine.getDeck();
+    Deck discard = engine.getDiscard();
+    long pileKey = ((long) deck.getVersion() << 32) | discard.getVersion();
+    if (pileLayer.isStale(pileKey)) {
+      PGraphics g = pileLayer.beginDraw(pileKey);
+      deck.draw(g, pileX, 80, false);
+      discard.draw(g, pileX + 100, 80, true);
+      pileLayer.endDraw();
     }
+    pileLayer.draw();
 
-    // Display game messages with different colors based on the content
-    int y = 200; // Starting y-position for messages
-    for (String message : gameMessages) {
-      textSize(16);
-      if (message.contains("CABO")) {
-        fill(255, 128, 0);
-      } else if (message.contains("switched")) {
-        fill(255, 204, 153);
-      } else if (message.contains("spied")) {
-        fill(255, 229, 204);
-      } else {
-        fill(255);
+    // draw the players' hands
+    for (int i = 0; i < players.length; i++) {
+      Hand hand = players[i].getHand();
+      if (handLayers[i].isStale(hand.getVersion())) {
+        hand.draw(handLayers[i].beginDraw(hand.getVersion()), handY(i));
+        handLayers[i].endDraw();
+      }
+      handLayers[i].draw();
+    }
+
+    // draw the buttons; they change when they are (de)activated, relabeled or hovered
+    long buttonKey = 0;
+    for (Button button : buttons) {
+      buttonKey += button.getVersion();
+    }
+    int target = findHoverTarget();
+    int hoveredButton = target < buttons.length ? target : -1;
+    buttonKey = (buttonKey << 8) | (hoveredButton + 1);
+    if (buttonLayer.isStale(buttonKey)) {
+      PGraphics g = buttonLayer.beginDraw(buttonKey);
+      for (int i = 0; i < buttons.length; i++) {
+        buttons[i].draw(g, i == hoveredButton);
+      }
+      buttonLayer.endDraw();
+    }
+    buttonLayer.draw();
+
+    // show the drawn card, if there is one
+    int drawnCard = engine.getDrawnCard();
+    if (drawnCard != Cards.NONE) {
+      BaseCard card = BaseCard.forCard(drawnCard);
+      card.setFaceUp(true);
+      card.draw(pileX, 500);
+    }
+
+    // Display game messages with different colors based on the type of event
+    GameLog log = engine.getGameLog();
+    if (logLayer.isStale(log.getVersion())) {
+      PGraphics g = logLayer.beginDraw(log.getVersion());
+      g.textSize(16);
+      g.textAlign(CENTER, CENTER);
+      int y = 200; // Starting y-position for messages
+      for (int i = 0; i < log.size(); i++) {
+        long event = log.get(i);
+        switch (GameEvent.type(event)) {
+          case GameEvent.CABO -> g.fill(255, 128, 0);
+          case GameEvent.SWITCH -> g.fill(255, 204, 153);
+          case GameEvent.SPY -> g.fill(255, 229, 204);
+          default -> g.fill(255);
+        }
+        g.text(GameEvent.toString(event, players), width - 300, y); // Adjust x-position as needed
+        y += 20; // Spacing between messages
       }
-      text(message, width - 300, y); // Adjust x-position as needed
-      y += 20; // Spacing between messages
+      logLayer.endDraw();
     }
+    logLayer.draw();
 
-    // TODO: if the game is over, display the game over status
-    if (gameOver) {
+    // if the game is over, display the game over status
+    if (engine.isGameOver()) {
       displayGameOver();
     }
 
-    // TODO: handle the computer players' turns
-    if (players[currentPlayer].isComputer() && !gameOver) {
-      performAITurn();
+    if (replaying) {
+      textSize(16);
+      textAlign(CENTER, CENTER);
+      fill(255);
+      text("Replay: turn " + replayTurn + " of " + replay.getTurns()
+          + " (Left/Right: 1 turn, Up/Down: 10 turns, Home/End)", width - 300, 170);
     }
 
+    CaboMetrics.get().frameTime().recordSince(frameStart);
+
+  }
+
+  /**
+   * Stops the computer players' background thread, closes the game journal and saves the replay of
+   * the current round to cabo.replay when the window is closed.
+   */
+  @Override
+  public void dispose() {
+    if (aiScheduler != null) {
+      aiScheduler.shutdown();
+    }
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        System.err.println("Cannot write the game journal: " + e.getMessage());
+      }
+    }
+    if (replay != null && !replaying) {
+      try {
+        replay.save(Paths.get(sketchPath("cabo.replay")), rules);
+      } catch (IOException e) {
+        System.err.println("Cannot write the replay: " + e.getMessage());
+      }
+    }
+    super.dispose();
   }
 
   /**
@@ -300,8 +456,18 @@ public class CaboGame extends processing.core.PApplet {
   @Override
   public void mousePressed() {
 
-    // handle additional action states (TODO: complete these methods)
-    switch (actionState) {
+    if (replaying) {
+      return;
+    }
+
+    // a click on the game-over screen starts the next round
+    if (engine.isGameOver()) {
+      newRound();
+      return;
+    }
+
+    // handle additional action states
+    switch (engine.getActionState()) {
       case SWAPPING -> handleCardSwap();
       case PEEKING -> handlePeek();
       case SPYING -> handleSpy();
@@ -310,48 +476,37 @@ public class CaboGame extends processing.core.PApplet {
         /* No action to be taken */ }
     }
 
-    // TODO: if game is over or it's the computer's turn, do nothing
-    if (!gameOver && !players[currentPlayer].isComputer()) {
-      // TODO: handle button clicks
-      for (int i = 0; i < 5; i++) {
-
-        if (buttons[i].isMouseOver()) {
-
-          switch (i) {
-
-            case 0: {
-              drawFromDeck();
-              break;
-            }
-            case 1: {
-              handleCardSwap();
-              break;
-            }
-            case 2: {
-              declareCabo();
-              break;
-            }
-            case 3: {
-              String action = buttons[3].getLabel();
-              if (action.toLowerCase().equals("swap")) {
-                actionState = ActionState.SWAPPING;
-              } else if (action.toLowerCase().equals("peek")) {
-                actionState = ActionState.PEEKING;
-              } else if (action.toLowerCase().equals("spy")) {
-                actionState = ActionState.SPYING;
-              } else if (action.toLowerCase().equals("switch")) {
-                actionState = ActionState.SWITCHING;
-              }
-              break;
-            }
-            case 4: {
-              nextTurn();
-              break;
-            }
-            default: {
-              /* No action to be taken */ }
+    // if game is over or it's the computer's turn, do nothing
+    if (!engine.isGameOver() && !engine.getPlayers()[engine.getCurrentPlayer()].isComputer()) {
+      // handle button clicks
+      int i = findHoverTarget();
+      if (i >= 0 && i < buttons.length && buttons[i].isActive()) {
+
+        switch (i) {
 
+          case 0: {
+            drawFromDeck();
+            break;
+          }
+          case 1: {
+            handleCardSwap();
+            break;
+          }
+          case 2: {
+            declareCabo();
+            break;
           }
+          case 3: {
+            int action = engine.getRules().action(engine.getDrawnCard());
+            engine.setActionState(ACTION_STATES[action]);
+            break;
+          }
+          case 4: {
+            nextTurn();
+            break;
+          }
+          default: {
+            /* No action to be taken */ }
 
         }
 
@@ -359,6 +514,126 @@ public class CaboGame extends processing.core.PApplet {
 
     }
 
+    redraw();
+
+  }
+
+  /**
+   * Starts a new round with N once the game is over, so every round in the journal and the metrics
+   * is finished. When playing back a game, moves through its turns with the arrow keys instead: one
+   * turn with Left and Right, ten turns with Up and Down, and to the start or the end with Home and
+   * End.
+   */
+  @Override
+  public void keyPressed() {
+
+    if (!replaying) {
+      if ((key == 'n' || key == 'N') && engine.isGameOver()) {
+        newRound();
+      }
+      return;
+    }
+    if (key != CODED) {
+      return;
+    }
+
+    int turn = switch (keyCode) {
+      case LEFT -> replayTurn - 1;
+      case RIGHT -> replayTurn + 1;
+      case UP -> replayTurn + 10;
+      case DOWN -> replayTurn - 10;
+      case java.awt.event.KeyEvent.VK_HOME -> 0;
+      case java.awt.event.KeyEvent.VK_END -> replay.getTurns();
+      default -> replayTurn;
+    };
+    turn = constrain(turn, 0, replay.getTurns());
+    if (turn != replayTurn) {
+      replayTurn = turn;
+      engine.getGameLog().clear();
+      replay.seek(engine, turn);
+      updateButtonStates();
+      redraw();
+    }
+
+  }
+
+  /**
+   * Redraws the game when the mouse moves onto or off a button or a card, so buttons can show that
+   * they are hovered.
+   */
+  @Override
+  public void mouseMoved() {
+
+    int target = findHoverTarget();
+    if (target != hoverTarget) {
+      hoverTarget = target;
+      redraw();
+    }
+
+  }
+
+  @Override
+  public void mouseDragged() {
+    mouseMoved();
+  }
+
+  /**
+   * Returns what the mouse is over: the index of a button, a card in a hand encoded as
+   * cardTarget(), or -1 if it is over nothing.
+   */
+  private int findHoverTarget() {
+    return hitGrid.find(mouseX, mouseY);
+  }
+
+  /**
+   * Returns the mouse target id of a card in a hand, which comes after the ids of the buttons.
+   *
+   * @param seat the seat of the player
+   * @param slot the index of the card in the hand
+   * @return the id of the card in the hit grid
+   */
+  private int cardTarget(int seat, int slot) {
+    return buttons.length + seat * SEAT_STRIDE + slot;
+  }
+
+  /**
+   * Returns the seat of the hand the mouse is over.
+   *
+   * @return the seat, or -1 if the mouse is not over a card in a hand
+   */
+  private int seatUnderMouse() {
+
+    int target = findHoverTarget();
+    return target < buttons.length ? -1 : (target - buttons.length) / SEAT_STRIDE;
+
+  }
+
+  /**
+   * Returns the card of the given player's hand that the mouse is over.
+   *
+   * @param seat the seat of the player
+   * @return the index of the card in the hand, or -1 if the mouse is not over one of its cards
+   */
+  private int slotUnderMouse(int seat) {
+
+    int target = findHoverTarget() - buttons.length;
+    int slot = target % SEAT_STRIDE;
+    if (target < 0 || target / SEAT_STRIDE != seat
+        || slot >= engine.getPlayers()[seat].getHand().size()) {
+      return -1;
+    }
+    return slot;
+
+  }
+
+  /**
+   * Returns where the hand of a player is drawn.
+   *
+   * @param seat the seat of the player
+   * @return the y-coordinate of the top of the hand
+   */
+  private int handY(int seat) {
+    return 60 + (seatSpacing * seat);
   }
 
   ///////////////////////////////////// BUTTON CLICK HANDLERS /////////////////////////////////////
@@ -370,17 +645,8 @@ public class CaboGame extends processing.core.PApplet {
    */
   public void drawFromDeck() {
 
-    // TODO: if the deck is empty, game over
-    if (deck.isEmpty()) {
-      gameOver = true;
-    } else {
-      // TODO: otherwise, draw the next card from the deck
-      drawnCard = deck.drawCard();
-      // TODO: update the gameMessages log: player.name+" drew a card."
-      setGameStatus(players[currentPlayer].getName() + " drew a card.");
-      // TODO: update the button states
-      updateButtonStates();
-    }
+    engine.drawFromDeck();
+    updateButtonStates();
 
   }
 
@@ -390,12 +656,9 @@ public class CaboGame extends processing.core.PApplet {
    */
   public void declareCabo() {
 
-    // TODO: update the gameMessages log: player.name+" declares CABO!"
-    setGameStatus(players[currentPlayer].getName() + " declares CABO!");
-    // TODO: set the caboPlayer to the current player's index
-    caboPlayer = currentPlayer;
-    // TODO: end this player's turn
-    nextTurn();
+    engine.declareCabo();
+    selectedCardFromCurrentPlayer = -1;
+    updateButtonStates();
 
   }
 
@@ -405,48 +668,20 @@ public class CaboGame extends processing.core.PApplet {
    * This method runs when the human player has chosen to SWAP the drawn card with one from their
    * hand. Detect if the mouse is over a card from the currentPlayer's hand and, if it is, swap the
    * drawn card with that card.
-   * 
+   *
    * If the mouse is not currently over a card from the currentPlayer's hand, this method does
    * nothing.
    */
   public void handleCardSwap() {
 
-    actionState = ActionState.SWAPPING;
-    setGameStatus("Click a card in your hand to swap it with the drawn card.");
+    engine.setActionState(CaboEngine.ActionState.SWAPPING);
+    engine.getGameLog().add(GameEvent.of(GameEvent.HINT_SWAP, engine.getCurrentPlayer()));
 
-    // TODO: find a card from the current player's hand that the mouse is currently over
-    Hand hand = players[currentPlayer].getHand();
-
-    int i = -1;
-    i = hand.indexOfMouseOver();
+    // find a card from the current player's hand that the mouse is currently over
+    int i = slotUnderMouse(engine.getCurrentPlayer());
     if (i != -1) {
-      // TODO: swap that card with the drawnCard
-      BaseCard card = hand.cardList.get(i);
-      hand.swap(drawnCard, i);
-      // TODO: add the swapped-out card from the player's hand to the discard pile
-      discard.addCard(card);
-      // TODO: update the gameMessages log: "Swapped the drawn card with card "+(index+1)+" in the
-      // hand."
-      setGameStatus("Swapped the drawn card with card " + (i + 1) + " in the hand.");
-
-      // TODO: set the drawnCard to null and the actionState to NONE
-      drawnCard = null;
-      actionState = ActionState.NONE;
-
-      // TODO: set all buttons except End Turn to inactive
-      buttons[0].setActive(false);
-      buttons[1].setActive(false);
-      buttons[2].setActive(false);
-      buttons[3].setActive(false);
-      buttons[4].setActive(true);
-
-      // TODO: uncomment this code to erase all knowledge of the card at that index from the AI
-      // (you may need to adjust its indentation and/or change some variables)
-      AIPlayer AI;
-      for (int j = 1; j < players.length; ++j) {
-        AI = (AIPlayer) players[j];
-        AI.setCardKnowledge(players[currentPlayer].getLabel(), i, false);
-      }
+      engine.swapDrawnCard(i);
+      updateButtonStates();
     }
 
   }
@@ -454,80 +689,43 @@ public class CaboGame extends processing.core.PApplet {
   /**
    * Handles the action of peeking at one of your cards. The player selects a card from their own
    * hand, which is then revealed (set face-up).
-   * 
+   *
    * If the mouse is not currently over a card from the currentPlayer's hand, this method does
    * nothing.
    */
   public void handlePeek() {
 
-    setGameStatus("Click a card in your hand to peek at it.");
-
-    Hand hand = players[currentPlayer].getHand();
-
-    // TODO: find a card from the current player's hand that the mouse is currently over
-    for (int i = 0; i < 4; i++) {
-
-      BaseCard card = hand.cardList.get(i);
-
-      if (card.isMouseOver()) {
+    engine.getGameLog().add(GameEvent.of(GameEvent.HINT_PEEK, engine.getCurrentPlayer()));
 
-        // TODO: set that card to be face-up
-        card.setFaceUp(true);
-        // TODO: update the gameMessages log: "Revealed card "+(index+1)+" in the hand."
-        setGameStatus("Revealed card " + (i + 1) + " in the hand.");
-
-        // TODO: add the drawnCard to the discard, set drawnCard to null and actionState to NONE
-        discard.addCard(drawnCard);
-        actionState = ActionState.NONE;
-
-        // TODO: set all buttons except End Turn to inactive
-        buttons[0].setActive(false);
-        buttons[1].setActive(false);
-        buttons[2].setActive(false);
-        buttons[3].setActive(false);
-        buttons[4].setActive(true);
-
-      }
+    // find a card from the current player's hand that the mouse is currently over
+    int i = slotUnderMouse(engine.getCurrentPlayer());
+    if (i != -1) {
+      engine.peek(i);
+      updateButtonStates();
     }
+
   }
 
   /**
    * Handles the spy action, allowing the current player to reveal one of another player's cards.
    * The current player selects a card from another player's hand, which is temporarily revealed.
-   * 
+   *
    * If the mouse is not currently over a card from another player's hand, this method does nothing.
    */
   public void handleSpy() {
 
-    setGameStatus("Click a card in another player's hand to spy on it.");
-
-    // TODO: find a card from any player's hand that the mouse is currently over
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-
-        if (i != currentPlayer) {
-
-          if (players[i].getHand().cardList.get(j).isMouseOver()) {
+    engine.getGameLog().add(GameEvent.of(GameEvent.HINT_SPY, engine.getCurrentPlayer()));
 
-            // TODO: if it is not one of their own cards, set it to be face-up
-            players[i].getHand().cardList.get(j).setFaceUp(true);
-            // TODO: update the gameMessages log: "Spied on "+player.name+"'s card.";
-            setGameStatus("Spied on " + players[i].getName() + "'s card.");
+    // find a card from any other player's hand that the mouse is currently over
+    int i = seatUnderMouse();
+    if (i != -1 && i != engine.getCurrentPlayer()) {
 
-            // TODO: add the drawnCard to the discard, set drawnCard to null and actionState to NONE
-            discard.addCard(drawnCard);
-            actionState = ActionState.NONE;
-
-            // TODO: set all buttons except End Turn to inactive
-            buttons[0].setActive(false);
-            buttons[1].setActive(false);
-            buttons[2].setActive(false);
-            buttons[3].setActive(false);
-            buttons[4].setActive(true);
-
-          }
-        }
+      int j = slotUnderMouse(i);
+      if (j != -1) {
+        engine.spy(i, j);
+        updateButtonStates();
       }
+
     }
   }
 
@@ -535,78 +733,39 @@ public class CaboGame extends processing.core.PApplet {
   /**
    * Handles the switch action, allowing the current player to switch one of their cards with a card
    * from another player's hand.
-   * 
+   *
    * This action is performed in 2 steps, in this order: (1) select a card from the current player's
    * hand (2) select a card from another player's hand
-   * 
+   *
    * If the mouse is not currently over a card, this method does nothing.
    */
   public void handleSwitch() {
 
-    setGameStatus(
-        "Click a card from your hand, then a card from another Kingdom's hand to switch.");
+    engine.getGameLog().add(GameEvent.of(GameEvent.HINT_SWITCH, engine.getCurrentPlayer()));
 
-    // TODO: add CaboGame instance variable to store the index of the card from the currentPlayer's
-    // hand
+    int currentPlayer = engine.getCurrentPlayer();
 
-    // TODO: check if the player has selected a card from their own hand yet
+    // check if the player has selected a card from their own hand yet
     if (selectedCardFromCurrentPlayer == -1) {
 
-      // TODO: if they haven't: determine which card in their own hand the mouse is over & store it
-      // and do nothing else
-      for (int i = 0; i < 4; i++) {
-
-        if (players[currentPlayer].getHand().cardList.get(i).isMouseOver()) {
-          selectedCardFromCurrentPlayer = i;
-        }
+      // if they haven't: determine which card in their own hand the mouse is over & store it
+      selectedCardFromCurrentPlayer = slotUnderMouse(currentPlayer);
 
-      }
     }
-    // TODO: if they have selected a card from their own hand already:
+    // if they have selected a card from their own hand already:
     else {
 
-      // TODO: find a card from any OTHER player's hand that the mouse is currently over
-      for (int i = 0; i < 4; i++) {
-        for (int j = 0; j < 4; j++) {
-
-          if (i != currentPlayer) {
-
-            if (players[i].getHand().cardList.get(j).isMouseOver()) {
-
-              // TODO: swap the selected card with the card from the currentPlayer's hand
-              players[currentPlayer].getHand().switchCards(selectedCardFromCurrentPlayer,
-                  players[i].getHand(), j);
-              // TODO: update the gameMessages log: "Switched a card with "+player.name
-              setGameStatus("Switched a card with " + players[i].getName());
-
-              // TODO: add the drawnCard to the discard, set drawnCard to null and actionState to
-              // NONE
-              discard.addCard(drawnCard);
-              actionState = ActionState.NONE;
-
-              // TODO: set all buttons except End Turn to inactive
-              buttons[0].setActive(false);
-              buttons[1].setActive(false);
-              buttons[2].setActive(false);
-              buttons[3].setActive(false);
-              buttons[4].setActive(true);
-
-              // TODO: uncomment this code to update the knowledge of the swapped card for the other
-              // player
-              // (you may need to adjust its indentation and variables)
-              boolean knowledge = ((AIPlayer) players[i]).getCardKnowledge(
-                  players[currentPlayer].getLabel(), selectedCardFromCurrentPlayer);
-              ((AIPlayer) players[i]).setCardKnowledge(players[currentPlayer].getLabel(),
-                  selectedCardFromCurrentPlayer,
-                  ((AIPlayer) players[i]).getCardKnowledge(players[i].getLabel(), j));
-              ((AIPlayer) players[i]).setCardKnowledge(players[i].getLabel(), j, knowledge);
-
-              // TODO: reset the selected card instance variable to -1
-              selectedCardFromCurrentPlayer = -1;
-
-            }
-          }
+      // find a card from any OTHER player's hand that the mouse is currently over
+      int i = seatUnderMouse();
+      if (i != -1 && i != currentPlayer) {
+
+        int j = slotUnderMouse(i);
+        if (j != -1) {
+          engine.switchCards(selectedCardFromCurrentPlayer, i, j);
+          selectedCardFromCurrentPlayer = -1;
+          updateButtonStates();
         }
+
       }
     }
   }
@@ -614,56 +773,42 @@ public class CaboGame extends processing.core.PApplet {
   /////////////////////////////////////////////////////////////////////////////////////////////////
 
   /**
-   * Advances the game to the next player's turn. Hides all players' cards, updates the current
-   * player, checks for game-over conditions, resets action states, and updates the UI button states
-   * for the new player's turn.
+   * Starts a new round at the same table without restarting the sketch, once the game is over. The
+   * engine puts its cards back in the deck, shuffles and deals them again, and the AI players forget
+   * what they knew; no card, image or player is created or loaded, so the next round starts at
+   * once. A decision the computer players were still making about the old round is dropped.
+   *
+   * The seed of the new round comes from the old round, so a session started from a seed always
+   * deals the same rounds; the replay records the new round from its own seed.
    */
-  public void nextTurn() {
-
-    // TODO: hide all players' cards
-    for (int i = 0; i < 4; i++) {
-      Hand hand = players[i].getHand();
-      for (int j = 0; j < 4; j++) {
-        hand.cardList.get(j).setFaceUp(false);
-      }
-    }
-
-    // TODO: if there is still an active drawnCard, discard it and set drawnCard to null
-    if (drawnCard != null) {
+  public void newRound() {
 
-      discard.addCard(drawnCard);
-      drawnCard = null;
-
-    }
-
-    // TODO: advance the current player to the next one in the list
-    currentPlayer++;
-    if (currentPlayer >= 4) {
-      currentPlayer = 0;
-    }
-
-    // TODO: check if the new player is the one who declared CABO (and end the game if so)
-    if (caboPlayer == currentPlayer) {
-      gameOver = true;
-    }
+    long seed = engine.getRandom().nextLong();
+    replay.reset(seed);
+    aiScheduler.reset();
+    engine.newRound(new SplittableRandom(seed));
+    selectedCardFromCurrentPlayer = -1;
+    updateButtonStates();
+    redraw();
 
-    // TODO: update the gameMessages log: "Turn for "+player.name
-    setGameStatus("Turn for " + players[currentPlayer].getName());
+  }
 
-    // TODO: reset the action state to NONE
-    actionState = ActionState.NONE;
+  /**
+   * Advances the game to the next player's turn and updates the UI button states for the new
+   * player's turn.
+   */
+  public void nextTurn() {
 
-    // TODO: update the button states
+    engine.nextTurn();
+    selectedCardFromCurrentPlayer = -1;
     updateButtonStates();
 
   }
 
   /**
-   * Displays the game-over screen and reveals all players' cards. The method calculates each
-   * player's score, identifies the winner, and displays a message about the game's result,
-   * including cases where there is no winner.
-   * 
-   * We've provided the code for the GUI parts, but the logic behind this method is still TODO
+   * Displays the game-over screen and reveals all players' cards. The method displays each
+   * player's score and a message about the game's result, including cases where there is no
+   * winner.
    */
   public void displayGameOver() {
 
@@ -675,179 +820,30 @@ public class CaboGame extends processing.core.PApplet {
     textAlign(CENTER, CENTER);
     text("Game Over!", (float) width / 2, (float) height / 2 - 150);
 
-    int[] playerScores = new int[4];
-    int counter = 0;
     int yPosition = height / 2 - 100;
     textSize(24);
 
-    // TODO: reveal all players' cards
-    // TODO: calculate and display each player's score
-    for (Player player : players) {
-      Hand hand = player.getHand();
-      for (BaseCard card : hand.cardList) {
-        card.setFaceUp(true);
-      }
-      playerScores[counter] = hand.calcHand();
-      text(player.getName() + "'s score: " + hand.calcHand(), (float) width / 2, yPosition);
-      counter++;
+    // display each player's score; their cards were revealed before the hands were drawn
+    Player[] players = engine.getPlayers();
+    for (int i = 0; i < players.length; i++) {
+      text(players[i].getName() + "'s score: " + engine.getScore(i), (float) width / 2,
+          yPosition);
       yPosition += 30;
     }
 
-    // TODO: check if there is a tie or a specific CABO winner (lowest score wins)
-    String winner = null;
-    int winnerIndex = 0;
-    int winnerScore = 0;
-    boolean isTie = false;
-    for (int i = 0; i < 3; i++) {
-      if (playerScores[i + 1] > playerScores[i]) {
-        winnerIndex = i + 1;
-        winnerScore = players[i + 1].getHand().calcHand();
-      } else if (playerScores[i + 1] == winnerScore) {
-        isTie = true;
-      }
-    }
-
-    if (isTie) {
-      // TODO: display this message if there is no winner
+    // check if there is a tie or a specific CABO winner (lowest score wins)
+    int winnerIndex = engine.getWinner();
+    if (winnerIndex == -1) {
       text("No Winner. The war starts.", (float) width / 2, yPosition + 30);
     } else {
-      // TODO: display this message if there is a winner
-      winner = players[winnerIndex].getName();
-      text("Winner: " + winner, (float) width / 2, yPosition + 30);
-    }
-
-  }
-
-  /**
-   * PROVIDED: Sets the current game status message and updates the message log. If the message log
-   * exceeds a maximum number of messages, the oldest message is removed.
-   *
-   * @param message the message to set as the current game status.
-   */
-  private void setGameStatus(String message) {
-    gameMessages.add(message);
-    int MAX_MESSAGES = 15;
-    if (gameMessages.size() > MAX_MESSAGES) {
-      gameMessages.remove(0); // Remove the oldest message
+      text("Winner: " + players[winnerIndex].getName(), (float) width / 2, yPosition + 30);
     }
-  }
-
-  /////////////////////////////////////////////////////////////////////////////////////////////////
-  // The 2 methods below this line are PROVIDED in their entirety to run the AIPlayer interactions
-  // with the CABO game. Uncomment them once you are ready to add AIPlayer actions to your game!
-  /////////////////////////////////////////////////////////////////////////////////////////////////
-
-  /**
-   * Performs the AI player's turn by drawing a card and deciding whether to swap, discard, or use
-   * an action card. If the AI player draws a card that is better than their highest card, they swap
-   * it; otherwise, they discard it. If the drawn card is an action card, the AI player performs the
-   * corresponding action. If the AI player's hand value is low enough, they may declare CABO.
-   */
-
-  private void performAITurn() {
-    AIPlayer aiPlayer = (AIPlayer) players[currentPlayer];
-    String gameStatus = aiPlayer.getName() + " is taking their turn.";
-    setGameStatus(gameStatus);
 
-    // Draw a card from the deck
-    drawnCard = deck.drawCard();
-    if (drawnCard == null) {
-      gameOver = true;
-      return;
+    if (!replaying) {
+      textSize(16);
+      text("Click or press N to play another round", (float) width / 2, yPosition + 80);
     }
 
-    gameStatus = aiPlayer.getName() + " drew a card.";
-    setGameStatus(gameStatus);
-
-    // Determine if AI should swap or discard
-    int drawnCardValue = drawnCard.getRank();
-    int highestCardIndex = aiPlayer.getHighestIndex();
-    if (highestCardIndex == -1) {
-      highestCardIndex = 0;
-    }
-    int highestCardValue = aiPlayer.getHand().getRankAtIndex(highestCardIndex);
-
-    // Swap if the drawn card has a lower value than the highest card in hand
-    if (drawnCardValue < highestCardValue) {
-      BaseCard cardInHand = aiPlayer.getHand().swap(drawnCard, highestCardIndex);
-      aiPlayer.setCardKnowledge(aiPlayer.getLabel(), highestCardIndex, true);
-      discard.addCard(cardInHand);
-      gameStatus = aiPlayer.getName() + " swapped the drawn card with card "
-          + (highestCardIndex + 1) + " in their hand.";
-      setGameStatus(gameStatus);
-    } else if (drawnCard instanceof ActionCard) { // Use the action card
-      String actionType = ((ActionCard) drawnCard).getActionType();
-      gameStatus = aiPlayer.getName() + " uses an action card: " + actionType;
-      setGameStatus(gameStatus);
-      performAIAction(aiPlayer, actionType);
-      discard.addCard(drawnCard);
-    } else { // Discard the drawn card
-      discard.addCard(drawnCard);
-      gameStatus = aiPlayer.getName() + " discarded the drawn card: " + drawnCard;
-      setGameStatus(gameStatus);
-    }
-
-    // AI may declare Cabo if hand value is low enough
-    int handValue = aiPlayer.calcHandBlind();
-    if (handValue <= random(13, 21) && caboPlayer == -1) {
-      declareCabo();
-    }
-
-    // Prepare for the next turn
-    drawnCard = null;
-    nextTurn();
-  }
-
-
-  /**
-   * Performs the specified action for the AI player based on the drawn action card. Actions include
-   * peeking at their own cards, spying on another player's card, or switching cards with another
-   * player.
-   *
-   * @param aiPlayer   the AI player performing the action.
-   * @param actionType the type of action to perform ("peek", "spy", or "switch").
-   */
-  private void performAIAction(AIPlayer aiPlayer, String actionType) {
-    Player otherPlayer = players[0];
-    // Assuming Player 1 is the human player
-    String gameStatus = "";
-    switch (actionType) {
-      case "peek" -> { // AI peeks at one of its own cards
-        int unknownCardIndex = aiPlayer.getUnknownCardIndex();
-        if (unknownCardIndex != -1) {
-          aiPlayer.setCardKnowledge(aiPlayer.getLabel(), unknownCardIndex, true);
-          gameStatus = aiPlayer.getName() + " peeked at their card " + (unknownCardIndex + 1);
-          setGameStatus(gameStatus);
-        }
-      }
-      case "spy" -> { // AI spies on one of the human player's cards
-        int spyIndex = aiPlayer.getSpyIndex();
-        if (spyIndex != -1) {
-          aiPlayer.setCardKnowledge(0, spyIndex, true);
-          gameStatus = aiPlayer.getName() + " spied on Player 1's card " + (spyIndex + 1);
-          setGameStatus(gameStatus);
-        }
-      }
-      case "switch" -> { // AI switches one of its cards with one of the human player's cards
-        int aiCardIndex = aiPlayer.getHighestIndex();
-        if (aiCardIndex == -1) {
-          aiCardIndex = (int) random(aiPlayer.getHand().size());
-        }
-        int otherCardIndex = aiPlayer.getLowestIndex(otherPlayer);
-        if (otherCardIndex == -1)
-          otherCardIndex = (int) random(otherPlayer.getHand().size());
-        // Swap the cards between AI and the human player
-        aiPlayer.getHand().switchCards(aiCardIndex, otherPlayer.getHand(), otherCardIndex);
-        boolean preCardKnowledge = aiPlayer.getCardKnowledge(aiPlayer.getLabel(), aiCardIndex);
-        aiPlayer.setCardKnowledge(aiPlayer.getLabel(), aiCardIndex,
-            aiPlayer.getCardKnowledge(0, otherCardIndex));
-        aiPlayer.setCardKnowledge(0, otherCardIndex, preCardKnowledge);
-
-        gameStatus = aiPlayer.getName() + " switched card " + (aiCardIndex + 1) + " with "
-            + otherPlayer.getName() + "'s " + (otherCardIndex + 1) + ".";
-        setGameStatus(gameStatus);
-      }
-    }
   }
 
 }
@@ -0,0 +1,196 @@
+import java.lang.management.ManagementFactory;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The CaboMetrics class collects the numbers behind the game's performance and play: how long
+ * frames and AI players take (see LatencyHistogram), and counters of games, CABO calls, action
+ * cards, empty decks and final scores. The counters follow the events of the games the metrics
+ * listen to, so only real games count, and not the games the AI players simulate.
+ *
+ * There is one set of metrics per JVM, shown over JMX (see CaboMetricsMXBean). Recording is
+ * lock-free and does not allocate, so the metrics are always on.
+ */
+public final class CaboMetrics implements CaboMetricsMXBean, GameListener {
+
+  public static final String OBJECT_NAME = "cabo:type=Metrics";
+
+  // the range of scores counted in an array; the rare scores outside it, which only some house
+  // rules reach, are counted in a map instead
+  private static final int MIN_SCORE = -16;
+  private static final int SCORES = 128;
+
+  private static final CaboMetrics INSTANCE = register(new CaboMetrics());
+
+  private final LatencyHistogram aiDecisionTime = new LatencyHistogram();
+  private final LatencyHistogram aiTurnTime = new LatencyHistogram();
+  private final LongAdder caboCalls = new LongAdder();
+  private final LongAdder deckOuts = new LongAdder();
+  private final LatencyHistogram frameTime = new LatencyHistogram();
+  private final LongAdder gamesFinished = new LongAdder();
+  private final LongAdder gamesStarted = new LongAdder();
+  private final LongAdder peeks = new LongAdder();
+  private final LongAdder[] scores = new LongAdder[SCORES];
+  private final ConcurrentHashMap<Integer, LongAdder> otherScores = new ConcurrentHashMap<>();
+  private final LongAdder spies = new LongAdder();
+  private final LongAdder switches = new LongAdder();
+
+  private CaboMetrics() {
+
+    for (int i = 0; i < SCORES; i++) {
+      scores[i] = new LongAdder();
+    }
+
+  }
+
+  private static CaboMetrics register(CaboMetrics metrics) {
+
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+          new ObjectName(OBJECT_NAME));
+    } catch (JMException e) {
+      System.err.println("Cannot register the metrics over JMX: " + e.getMessage());
+    }
+    return metrics;
+
+  }
+
+  /**
+   * Returns the metrics of this JVM.
+   *
+   * @return the metrics, registered over JMX on first use
+   */
+  public static CaboMetrics get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Counts the event of a game.
+   *
+   * @param event the event, as encoded by GameEvent
+   */
+  @Override
+  public void onEvent(long event) {
+
+    switch (GameEvent.type(event)) {
+      case GameEvent.GAME_START -> gamesStarted.increment();
+      case GameEvent.CABO -> caboCalls.increment();
+      case GameEvent.PEEK -> peeks.increment();
+      case GameEvent.SPY -> spies.increment();
+      case GameEvent.SWITCH -> switches.increment();
+      case GameEvent.SCORE -> {
+        int score = GameEvent.score(event);
+        if (score >= MIN_SCORE && score < MIN_SCORE + SCORES) {
+          scores[score - MIN_SCORE].increment();
+        } else {
+          otherScores.computeIfAbsent(score, s -> new LongAdder()).increment();
+        }
+      }
+      case GameEvent.GAME_OVER -> {
+        gamesFinished.increment();
+        if (GameEvent.isDeckOut(event)) {
+          deckOuts.increment();
+        }
+      }
+      default -> {
+        /* not counted */ }
+    }
+
+  }
+
+  public LatencyHistogram frameTime() {
+    return frameTime;
+  }
+
+  public LatencyHistogram aiTurnTime() {
+    return aiTurnTime;
+  }
+
+  public LatencyHistogram aiDecisionTime() {
+    return aiDecisionTime;
+  }
+
+  @Override
+  public LatencyHistogram.Summary getFrameTime() {
+    return frameTime.getSummary();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getAITurnTime() {
+    return aiTurnTime.getSummary();
+  }
+
+  @Override
+  public LatencyHistogram.Summary getAIDecisionTime() {
+    return aiDecisionTime.getSummary();
+  }
+
+  @Override
+  public long getGamesStarted() {
+    return gamesStarted.sum();
+  }
+
+  @Override
+  public long getGamesFinished() {
+    return gamesFinished.sum();
+  }
+
+  @Override
+  public long getCaboCalls() {
+    return caboCalls.sum();
+  }
+
+  @Override
+  public long getPeeks() {
+    return peeks.sum();
+  }
+
+  @Override
+  public long getSpies() {
+    return spies.sum();
+  }
+
+  @Override
+  public long getSwitches() {
+    return switches.sum();
+  }
+
+  @Override
+  public long getDeckOuts() {
+    return deckOuts.sum();
+  }
+
+  @Override
+  public SortedMap<Integer, Long> getScoreDistribution() {
+
+    SortedMap<Integer, Long> distribution = new TreeMap<>();
+    for (int i = 0; i < SCORES; i++) {
+      long count = scores[i].sum();
+      if (count > 0) {
+        distribution.put(i + MIN_SCORE, count);
+      }
+    }
+    otherScores.forEach((score, count) -> distribution.put(score, count.sum()));
+    return distribution;
+
+  }
+
+  @Override
+  public String toString() {
+
+    return "Games: " + getGamesStarted() + " started, " + getGamesFinished() + " finished, "
+        + getDeckOuts() + " on an empty deck\n"
+        + "CABO calls: " + getCaboCalls() + ", peeks: " + getPeeks() + ", spies: " + getSpies()
+        + ", switches: " + getSwitches() + "\n"
+        + "Scores: " + getScoreDistribution() + "\n"
+        + "Frame time: " + getFrameTime() + "\n"
+        + "AI turn time: " + getAITurnTime() + "\n"
+        + "AI decision time: " + getAIDecisionTime();
+
+  }
+
+}
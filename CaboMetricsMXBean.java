@@ -0,0 +1,58 @@
+import java.util.SortedMap;
+
+/**
+ * The CaboMetricsMXBean interface is what CaboMetrics shows over JMX, for example in JConsole or
+ * VisualVM, under the name {@code cabo:type=Metrics}.
+ */
+public interface CaboMetricsMXBean {
+
+  /**
+   * Returns the time CaboGame takes to draw a frame.
+   *
+   * @return a snapshot of the frame times
+   */
+  LatencyHistogram.Summary getFrameTime();
+
+  /**
+   * Returns the time a whole AI turn takes where it is played in one go (see
+   * CaboEngine.performAITurn()), such as on a server table or in a tournament.
+   *
+   * @return a snapshot of the AI turn times
+   */
+  LatencyHistogram.Summary getAITurnTime();
+
+  /**
+   * Returns the time an AI player takes to decide where its decisions are made in the background
+   * (see AITurnScheduler): what to do with the drawn card, or whether to declare CABO.
+   *
+   * @return a snapshot of the AI decision times
+   */
+  LatencyHistogram.Summary getAIDecisionTime();
+
+  long getGamesStarted();
+
+  long getGamesFinished();
+
+  long getCaboCalls();
+
+  long getPeeks();
+
+  long getSpies();
+
+  long getSwitches();
+
+  /**
+   * Returns the number of games that ended because a player drew from an empty deck.
+   *
+   * @return the number of games
+   */
+  long getDeckOuts();
+
+  /**
+   * Returns how often every final score was reached, by every player of every finished game.
+   *
+   * @return the number of players who finished with each score, by score
+   */
+  SortedMap<Integer, Long> getScoreDistribution();
+
+}
@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The CaboServer class hosts many independent CABO tables in one JVM. Every client connects over
+ * TCP and plays at its own table (see CaboTable), against AI players, with a small binary protocol
+ * of the commands CaboGame's buttons give. All numbers are big-endian.
+ *
+ * Requests, each answered by exactly one reply:
+ *
+ * <pre>
+ * NEW_GAME  byte 1, long seed   starts a new game at the client's table
+ * MOVE      byte 2, int move    makes a move, as encoded by Moves
+ * VIEW      byte 3              asks for the table again
+ * </pre>
+ *
+ * Replies:
+ *
+ * <pre>
+ * STATE     byte 1, then what the client can see of its table (see CaboTable.writeView())
+ * ERROR     byte 2, then a message (see DataOutput.writeUTF()), for example for an illegal move
+ * </pre>
+ *
+ * Every connection is served by its own thread, which only blocks on its socket and on its table.
+ * Where the runtime has virtual threads (Java 21 and later), connections get virtual threads, so
+ * tens of thousands of them cost little; otherwise they get platform threads with small stacks.
+ * The tables are actors that run on a small pool of platform threads, one per core.
+ *
+ * Tables whose client has not made a request for the idle timeout hibernate to a TableStore, off
+ * the heap or in a memory-mapped file, and wake up on the client's next request.
+ *
+ * Usage: {@code java CaboServer [port] [rules file] [idle seconds] [store file]}
+ */
+public class CaboServer implements Closeable {
+
+  public static final int NEW_GAME = 1;
+  public static final int MOVE = 2;
+  public static final int VIEW = 3;
+
+  public static final int STATE = 1;
+  public static final int ERROR = 2;
+
+  public static final int DEFAULT_PORT = 4242;
+  public static final long DEFAULT_IDLE_MILLIS = 60_000;
+
+  private final ExecutorService connections;
+  private final long idleNanos;
+  private final AtomicInteger nextTableId = new AtomicInteger();
+  private final Ruleset rules;
+  private final ServerSocket serverSocket;
+  private final TableStore store;
+  private final ScheduledExecutorService sweeper;
+  private final ExecutorService tableThreads;
+  private final Map<Integer, CaboTable> tables = new ConcurrentHashMap<>();
+
+  /**
+   * Starts a server that accepts connections on the given port, on a background thread. Idle
+   * tables hibernate off the heap after DEFAULT_IDLE_MILLIS.
+   *
+   * @param port  the port to listen on, or 0 for any free port
+   * @param rules the rules of every table
+   * @throws IOException if the port cannot be opened
+   */
+  public CaboServer(int port, Ruleset rules) throws IOException {
+    this(port, rules, DEFAULT_IDLE_MILLIS, new TableStore(CaboTable.slotSize(rules)));
+  }
+
+  /**
+   * Starts a server that accepts connections on the given port, on a background thread.
+   *
+   * @param port       the port to listen on, or 0 for any free port
+   * @param rules      the rules of every table
+   * @param idleMillis the time without requests after which a table hibernates, in milliseconds
+   * @param store      the store idle tables hibernate to, with slots of CaboTable.slotSize() bytes;
+   *                   it is closed with the server
+   * @throws IOException if the port cannot be opened
+   */
+  public CaboServer(int port, Ruleset rules, long idleMillis, TableStore store)
+      throws IOException {
+
+    this.rules = rules;
+    this.store = store;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(port), 1024);
+    this.connections = newThreadPerTaskExecutor("connection");
+    this.tableThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        task -> {
+          Thread thread = new Thread(task, "tables");
+          thread.setDaemon(true);
+          return thread;
+        });
+    connections.execute(this::acceptConnections);
+
+    // look for idle tables a few times per timeout
+    this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "table sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = Math.max(1, idleMillis / 4);
+    sweeper.scheduleAtFixedRate(this::hibernateIdleTables, period, period, TimeUnit.MILLISECONDS);
+
+  }
+
+  private void hibernateIdleTables() {
+
+    for (CaboTable table : tables.values()) {
+      table.hibernateIfIdle(idleNanos);
+    }
+
+  }
+
+  /**
+   * Returns an executor that runs every task on a new thread: a virtual thread if the runtime has
+   * them, otherwise a daemon platform thread with a small stack.
+   *
+   * @param name the name of the threads
+   * @return the executor
+   */
+  static ExecutorService newThreadPerTaskExecutor(String name) {
+
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(null, task, name, 256 * 1024);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+  }
+
+  private void acceptConnections() {
+
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.execute(() -> serve(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          System.err.println("Cannot accept a connection: " + e.getMessage());
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Serves one client until it disconnects. The client's table only exists for the connection.
+   */
+  private void serve(Socket socket) {
+
+    CaboTable table = new CaboTable(nextTableId.getAndIncrement(), rules, tableThreads, store);
+    tables.put(table.getId(), table);
+    ByteBuffer view = ByteBuffer.allocate(CaboTable.viewSize(rules));
+
+    try (socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream()))) {
+      socket.setTcpNoDelay(true);
+
+      int request;
+      while ((request = in.read()) != -1) {
+        String error = switch (request) {
+          case NEW_GAME -> {
+            long seed = in.readLong();
+            yield call(table, view, t -> {
+              t.newGame(seed);
+              return null;
+            });
+          }
+          case MOVE -> {
+            int move = in.readInt();
+            yield call(table, view,
+                t -> t.move(move) ? null : "Illegal move: " + Moves.toString(move));
+          }
+          case VIEW -> call(table, view, t -> null);
+          default -> throw new IOException("Unknown request " + request);
+        };
+
+        if (error == null) {
+          out.write(STATE);
+          out.write(view.array(), 0, view.position());
+        } else {
+          out.write(ERROR);
+          out.writeUTF(error);
+        }
+        out.flush();
+      }
+    } catch (EOFException | SocketException e) {
+      // the client went away
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Closing connection " + table.getId() + ": " + e);
+    } finally {
+      tables.remove(table.getId());
+      table.close();
+    }
+
+  }
+
+  /**
+   * Runs a request on a table and, unless it fails, writes the client's view of the table.
+   *
+   * @return null if the request succeeded, otherwise the error message for the client
+   */
+  private static String call(CaboTable table, ByteBuffer view,
+      Function<CaboTable, String> request) {
+
+    return table.call(t -> {
+      String error = request.apply(t);
+      if (error == null && t.getEngine() == null) {
+        error = "There is no game at the table";
+      } else if (error == null) {
+        view.clear();
+        t.writeView(view);
+      }
+      return error;
+    }).join();
+
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the local port
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the number of tables, that is of connected clients.
+   *
+   * @return the number of tables
+   */
+  public int getTableCount() {
+    return tables.size();
+  }
+
+  /**
+   * Returns the number of tables that are hibernating.
+   *
+   * @return the number of tables whose game is in the store
+   */
+  public int getHibernatingCount() {
+    return store.getUsedSlots();
+  }
+
+  public TableStore getStore() {
+    return store;
+  }
+
+  /**
+   * Stops accepting connections and hibernating tables, and closes the store. Connected clients
+   * are served until they disconnect or the JVM exits, but their tables must not be hibernating.
+   *
+   * @throws IOException if the server socket or the store cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    serverSocket.close();
+    connections.shutdown();
+    sweeper.shutdownNow();
+    store.close();
+
+  }
+
+  /**
+   * Runs a server until the JVM is stopped.
+   *
+   * @param args optionally the port (4242 by default), a properties file with house rules (see
+   *             Ruleset; "-" for the standard rules), the idle timeout in seconds (60 by default)
+   *             and a file to map the store of hibernating tables from (off the heap by default)
+   * @throws IOException if the server cannot be started
+   */
+  public static void main(String[] args) throws IOException {
+
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    Ruleset rules = args.length > 1 && !args[1].equals("-") ? Ruleset.load(args[1])
+        : Ruleset.STANDARD;
+    long idleMillis = args.length > 2 ? (long) (Double.parseDouble(args[2]) * 1000)
+        : DEFAULT_IDLE_MILLIS;
+    TableStore store = args.length > 3
+        ? new TableStore(CaboTable.slotSize(rules), Paths.get(args[3]))
+        : new TableStore(CaboTable.slotSize(rules));
+
+    CaboServer server = new CaboServer(port, rules, idleMillis, store);
+    System.out.println("Serving CABO tables on port " + server.getPort());
+    while (true) {
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        break;
+      }
+      System.out.println("Tables: " + server.getTableCount() + ", hibernating: "
+          + server.getHibernatingCount() + " (" + store.getCapacityBytes() / 1024
+          + " KB off the heap)");
+    }
+
+  }
+
+}
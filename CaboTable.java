@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * The CaboTable class is one table of a CaboServer: a game between a remote human player in seat 0
+ * and AI players in the other seats. The table is an actor: its game is only touched by the tasks
+ * sent to it with call(), which run one at a time, in order, on a shared executor. A table never
+ * needs a lock, and many tables share a few threads.
+ *
+ * The AI players move right after the human, on the table's turn, so every reply to the human
+ * finds them on their turn again or the game over.
+ *
+ * A table that has been idle for a while can hibernate: its game is saved (see
+ * CaboEngine.saveState()) to a slot of a TableStore outside of the heap, and the engine and players
+ * are dropped. The next task sent to the table brings the game back first, so hibernation is
+ * invisible to the tasks, except that the game's random stream is reseeded from the old one: the
+ * AI players decide the same way on the same state, but with different random draws.
+ */
+public class CaboTable {
+
+  private static final String[] AI_NAMES = {"Avalon", "Balthor", "Ophira"};
+  private static final String PLAYER_NAME = "Player";
+
+  private CaboEngine engine; // only touched by the table's tasks, null while hibernating
+  private final Executor executor;
+  private final int id;
+  private long lastActive; // when the last task ran, in System.nanoTime()
+  private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+  private final Ruleset rules;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private int slot = -1; // the slot of the hibernating game in the store, or -1
+  private final TableStore store;
+
+  /**
+   * Creates an empty table that cannot hibernate. A game starts with newGame().
+   *
+   * @param id       the id of the table in its server
+   * @param rules    the rules of the table's games
+   * @param executor the executor the table's tasks run on, which may be shared with other tables
+   */
+  public CaboTable(int id, Ruleset rules, Executor executor) {
+    this(id, rules, executor, null);
+  }
+
+  /**
+   * Creates an empty table. A game starts with newGame().
+   *
+   * @param id       the id of the table in its server
+   * @param rules    the rules of the table's games
+   * @param executor the executor the table's tasks run on, which may be shared with other tables
+   * @param store    the store the table hibernates to, with slots of slotSize() bytes, or null
+   */
+  public CaboTable(int id, Ruleset rules, Executor executor, TableStore store) {
+
+    this.id = id;
+    this.rules = rules;
+    this.executor = executor;
+    this.store = store;
+    this.lastActive = System.nanoTime();
+
+  }
+
+  /**
+   * Returns the size of the store slots of tables by the given rules: the saved state of the game
+   * and the seed of its next random stream.
+   *
+   * @param rules the rules of the tables
+   * @return the size of a slot, in bytes
+   */
+  public static int slotSize(Ruleset rules) {
+    return CaboEngine.stateSize(rules) + Long.BYTES;
+  }
+
+  /**
+   * Runs a task on the table, after every task sent before it. The task may use the game freely;
+   * no other task of this table runs at the same time.
+   *
+   * @param task the task, given this table
+   * @param <T>  the type of the task's result
+   * @return the result of the task, once it has run
+   */
+  public <T> CompletableFuture<T> call(Function<CaboTable, T> task) {
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    send(() -> {
+      try {
+        wake();
+        lastActive = System.nanoTime();
+        result.complete(task.apply(this));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+
+  }
+
+  /**
+   * Hibernates the table if no task has run on it for the given time and it has a game. The check
+   * runs as a task of the table, which does not count as activity.
+   *
+   * @param idleNanos the time without tasks after which the table hibernates, in nanoseconds
+   */
+  public void hibernateIfIdle(long idleNanos) {
+
+    send(() -> {
+      if (engine != null && store != null && System.nanoTime() - lastActive >= idleNanos) {
+        hibernate();
+      }
+    });
+
+  }
+
+  /**
+   * Drops the table's game, and frees its store slot if it is hibernating, without waking it up.
+   * The table is empty afterwards, as if it had just been created.
+   */
+  public void close() {
+
+    send(() -> {
+      if (slot != -1) {
+        store.free(slot);
+        slot = -1;
+      }
+      engine = null;
+    });
+
+  }
+
+  private void send(Runnable task) {
+
+    mailbox.add(task);
+    if (scheduled.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+
+  }
+
+  /**
+   * Runs the queued tasks. Only one drain of a table runs at a time; a task queued while the last
+   * drain was finishing schedules the next one.
+   */
+  private void drain() {
+
+    Runnable task;
+    while ((task = mailbox.poll()) != null) {
+      task.run();
+    }
+    scheduled.set(false);
+    if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+
+  }
+
+  /**
+   * Saves the game to the store and drops it. If the store is full, the table stays awake.
+   */
+  private void hibernate() {
+
+    try {
+      slot = store.allocate();
+    } catch (IOException e) {
+      System.err.println("Table " + id + " cannot hibernate: " + e.getMessage());
+      return;
+    }
+    ByteBuffer buffer = store.slot(slot);
+    engine.saveState(buffer);
+    buffer.putLong(engine.getRandom().nextLong());
+    engine = null;
+
+  }
+
+  /**
+   * Brings a hibernating game back from the store. The game is dealt again, from the saved seed,
+   * and then put in its saved state.
+   */
+  private void wake() {
+
+    if (slot == -1) {
+      return;
+    }
+    ByteBuffer buffer = store.slot(slot);
+    long seed = buffer.getLong(CaboEngine.stateSize(rules));
+    engine = new CaboEngine(newPlayers(), rules, new SplittableRandom(seed));
+    engine.restoreState(buffer);
+    engine.addListener(CaboMetrics.get());
+    store.free(slot);
+    slot = -1;
+
+  }
+
+  /**
+   * Starts a new game at the table. Must run as a task of the table.
+   *
+   * @param seed the seed of the game
+   */
+  public void newGame(long seed) {
+
+    engine = new CaboEngine(newPlayers(), rules, new SplittableRandom(seed), CaboMetrics.get());
+
+  }
+
+  private Player[] newPlayers() {
+
+    Player[] players = new Player[rules.getNumPlayers()];
+    players[0] = new Player(PLAYER_NAME, 0, false, rules.getHandSize());
+    for (int i = 1; i < players.length; i++) {
+      String aiName = i <= AI_NAMES.length ? AI_NAMES[i - 1] : "AI " + i;
+      players[i] = new AIPlayer(aiName, i, true, rules);
+    }
+    return players;
+
+  }
+
+  /**
+   * Makes a move for the human player, then plays the AI players' turns until it is the human's
+   * turn again or the game is over. Must run as a task of the table.
+   *
+   * @param move the move, as encoded by Moves
+   * @return true if the move was made, false if there is no game or the move is not legal now
+   */
+  public boolean move(int move) {
+
+    if (engine == null || !engine.isLegal(move)) {
+      return false;
+    }
+    engine.applyMove(move);
+
+    Player[] players = engine.getPlayers();
+    LatencyHistogram turnTime = CaboMetrics.get().aiTurnTime();
+    while (!engine.isGameOver() && players[engine.getCurrentPlayer()].isComputer()) {
+      long start = System.nanoTime();
+      engine.performAITurn();
+      turnTime.recordSince(start);
+    }
+    return true;
+
+  }
+
+  /**
+   * Returns the number of bytes writeView() writes for a table by the given rules.
+   *
+   * @param rules the rules of the table
+   * @return the size of the view, in bytes
+   */
+  public static int viewSize(Ruleset rules) {
+    return 12 + rules.getNumPlayers() * rules.getHandSize();
+  }
+
+  /**
+   * Writes what the human player can see of the game to a buffer, in viewSize() bytes: the number
+   * of players, the hand size, the current player, the player who declared CABO (or -1), the drawn
+   * card if it is the human's (or -1), flags (1 if the game is over, 2 if the human has drawn),
+   * the number of cards in the deck, the top card of the discard pile (or -1), the number of turns
+   * played as an int, then every card at the table in turn order: its id if it is face-up, or -1.
+   * At the end of the game every card is face-up. Must run as a task of the table.
+   *
+   * @param buffer the buffer to write to, at its position
+   */
+  public void writeView(ByteBuffer buffer) {
+
+    if (engine.isGameOver()) {
+      engine.revealAll();
+    }
+    boolean humanTurn = engine.getCurrentPlayer() == 0;
+    Deck discard = engine.getDiscard();
+
+    buffer.put((byte) rules.getNumPlayers()).put((byte) rules.getHandSize());
+    buffer.put((byte) engine.getCurrentPlayer()).put((byte) engine.getCaboPlayer());
+    buffer.put((byte) (humanTurn ? engine.getDrawnCard() : Cards.NONE));
+    buffer.put((byte) ((engine.isGameOver() ? 1 : 0) | (humanTurn && engine.hasDrawn() ? 2 : 0)));
+    buffer.put((byte) engine.getDeck().size());
+    buffer.put((byte) (discard.isEmpty() ? Cards.NONE : discard.getCard(discard.size() - 1)));
+    buffer.putInt(engine.getTurnCount());
+
+    for (Player player : engine.getPlayers()) {
+      Hand hand = player.getHand();
+      for (int j = 0; j < hand.size(); j++) {
+        buffer.put((byte) (hand.isFaceUp(j) ? hand.getCard(j) : Cards.NONE));
+      }
+    }
+
+  }
+
+  /**
+   * Returns the game at the table. Must run as a task of the table.
+   *
+   * @return the game, or null if no game has been started
+   */
+  public CaboEngine getEngine() {
+    return engine;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public Ruleset getRules() {
+    return rules;
+  }
+
+}
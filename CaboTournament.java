@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CaboTournament class is a command-line batch mode that plays large numbers of games between
+ * AIPlayers on headless CaboEngines, split across a fixed pool of worker threads, and reports the
+ * aggregated results: win rates per seat, average scores per seat and game length. Optionally every
+ * game is recorded in a GameJournal.
+ *
+ * Usage:
+ * {@code java CaboTournament <seed> <games> [threads] [output file] [rules file] [journal file]}
+ */
+public class CaboTournament {
+
+  private static final int BATCH_SIZE = 1024;
+
+  /**
+   * The aggregated results of a number of games. Each worker fills its own instance, and the
+   * instances are merged once all workers have finished.
+   */
+  public static class Results {
+
+    private long games;
+    private long ties;
+    private long[] wins;
+    private long[] scoreTotals;
+    private long turnTotal;
+    private int minTurns = Integer.MAX_VALUE;
+    private int maxTurns;
+
+    /**
+     * Creates empty results for games between the given number of players.
+     *
+     * @param numPlayers the number of players in every game
+     */
+    public Results(int numPlayers) {
+      this.wins = new long[numPlayers];
+      this.scoreTotals = new long[numPlayers];
+    }
+
+    /**
+     * Records the outcome of a finished game.
+     *
+     * @param engine the engine of a game that is over
+     */
+    public void record(CaboEngine engine) {
+
+      games++;
+      int winner = engine.getWinner();
+      if (winner == -1) {
+        ties++;
+      } else {
+        wins[winner]++;
+      }
+      for (int i = 0; i < scoreTotals.length; i++) {
+        scoreTotals[i] += engine.getScore(i);
+      }
+      int turns = engine.getTurnCount();
+      turnTotal += turns;
+      minTurns = Math.min(minTurns, turns);
+      maxTurns = Math.max(maxTurns, turns);
+
+    }
+
+    /**
+     * Adds the results of another set of games to these results.
+     *
+     * @param other the results to merge into this one
+     */
+    public void merge(Results other) {
+
+      games += other.games;
+      ties += other.ties;
+      for (int i = 0; i < wins.length; i++) {
+        wins[i] += other.wins[i];
+        scoreTotals[i] += other.scoreTotals[i];
+      }
+      turnTotal += other.turnTotal;
+      minTurns = Math.min(minTurns, other.minTurns);
+      maxTurns = Math.max(maxTurns, other.maxTurns);
+
+    }
+
+    /**
+     * Writes a human-readable report of these results.
+     *
+     * @param out the stream to write the report to
+     */
+    public void print(PrintStream out) {
+
+      out.println("Games played: " + games);
+      for (int i = 0; i < wins.length; i++) {
+        out.printf("Seat %d: win rate %.4f, average score %.3f%n", i, (double) wins[i] / games,
+            (double) scoreTotals[i] / games);
+      }
+      out.printf("Ties: %.4f%n", (double) ties / games);
+      out.printf("Game length: average %.3f turns, min %d, max %d%n", (double) turnTotal / games,
+          minTurns, maxTurns);
+
+    }
+
+    public long getGames() {
+      return games;
+    }
+
+  }
+
+  /**
+   * Collects the events of one game at a time, so that a finished game can be appended to a shared
+   * journal as a whole.
+   */
+  private static class GameRecorder implements GameListener {
+
+    private long[] events = new long[256];
+    private int count;
+
+    @Override
+    public void onEvent(long event) {
+      if (count == events.length) {
+        events = Arrays.copyOf(events, 2 * count);
+      }
+      events[count++] = event;
+    }
+
+  }
+
+  /**
+   * Plays a batch of games. Every game gets its own stream split from the batch's stream, so the
+   * games of a batch are independent of each other and of every other batch.
+   *
+   * @param rules   the rules of the games
+   * @param random  the random stream of the batch
+   * @param games   the number of games to play
+   * @param journal the journal to record the games in, or null
+   * @return the results of those games
+   */
+  public static Results playGames(Ruleset rules, SplittableRandom random, long games,
+      GameJournal journal) {
+
+    Results results = new Results(rules.getNumPlayers());
+    CaboMetrics metrics = CaboMetrics.get();
+    GameRecorder recorder = journal == null ? null : new GameRecorder();
+    for (long game = 0; game < games; game++) {
+      if (recorder == null) {
+        results.record(playGame(rules, random.split(), metrics));
+      } else {
+        recorder.count = 0;
+        results.record(playGame(rules, random.split(), recorder, metrics));
+        try {
+          journal.append(recorder.events, recorder.count);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+    return results;
+
+  }
+
+  /**
+   * Plays a single game between AIPlayers to the end.
+   *
+   * @param rules     the rules of the game
+   * @param random    the source of randomness for the game
+   * @param listeners the listeners of the game's events
+   * @return the engine of the finished game
+   */
+  public static CaboEngine playGame(Ruleset rules, SplittableRandom random,
+      GameListener... listeners) {
+
+    Player[] players = new Player[rules.getNumPlayers()];
+    for (int i = 0; i < players.length; i++) {
+      players[i] = new AIPlayer("AI " + (i + 1), i, true, rules);
+    }
+
+    LatencyHistogram turnTime = CaboMetrics.get().aiTurnTime();
+    CaboEngine engine = new CaboEngine(players, rules, random, listeners);
+    while (!engine.isGameOver()) {
+      long start = System.nanoTime();
+      engine.performAITurn();
+      turnTime.recordSince(start);
+    }
+    return engine;
+
+  }
+
+  /**
+   * Plays a tournament on a pool of worker threads and merges the results. The games are cut into
+   * fixed-size batches whose random streams are split from the tournament seed in order, before
+   * any batch runs, so a seed replays the same games no matter how many threads play them.
+   *
+   * @param rules   the rules of the games
+   * @param seed    the tournament seed
+   * @param games   the number of games to play
+   * @param threads the number of worker threads
+   * @param journal the journal to record the games in, or null
+   * @return the aggregated results of all games
+   * @throws InterruptedException if interrupted while waiting for the workers
+   * @throws ExecutionException   if a worker failed
+   */
+  public static Results run(Ruleset rules, long seed, long games, int threads, GameJournal journal)
+      throws InterruptedException, ExecutionException {
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      SplittableRandom random = new SplittableRandom(seed);
+      List<Future<Results>> batches = new ArrayList<>();
+      for (long first = 0; first < games; first += BATCH_SIZE) {
+        SplittableRandom batchRandom = random.split();
+        long batchGames = Math.min(games - first, BATCH_SIZE);
+        batches.add(pool.submit(() -> playGames(rules, batchRandom, batchGames, journal)));
+      }
+
+      Results results = new Results(rules.getNumPlayers());
+      for (Future<Results> batch : batches) {
+        results.merge(batch.get());
+      }
+      return results;
+    } finally {
+      pool.shutdown();
+    }
+
+  }
+
+  /**
+   * Runs a tournament from the command line.
+   *
+   * @param args the seed, the number of games, optionally the number of threads (defaults to the
+   *             number of available processors), optionally a file to write the results to ("-"
+   *             for standard output), optionally a properties file with house rules (see
+   *             Ruleset; "-" for the standard rules) and optionally a journal file to record
+   *             every game in
+   */
+  public static void main(String[] args)
+      throws InterruptedException, ExecutionException, IOException {
+
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: java CaboTournament <seed> <games> [threads] [output file] [rules file] "
+              + "[journal file]");
+      System.exit(1);
+    }
+
+    long seed = Long.parseLong(args[0]);
+    long games = Long.parseLong(args[1]);
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+        : Runtime.getRuntime().availableProcessors();
+
+    Ruleset rules = args.length > 4 && !args[4].equals("-") ? Ruleset.load(args[4])
+        : Ruleset.STANDARD;
+    GameJournal journal = args.length > 5 ? new GameJournal(Paths.get(args[5]), true) : null;
+
+    long start = System.nanoTime();
+    Results results;
+    try {
+      results = run(rules, seed, games, threads, journal);
+    } finally {
+      if (journal != null) {
+        journal.close();
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    PrintStream out = args.length > 3 && !args[3].equals("-") ? new PrintStream(args[3])
+        : System.out;
+    out.println("Seed: " + seed + ", threads: " + threads);
+    results.print(out);
+    out.printf("Elapsed: %.2f s (%.0f games/s)%n", seconds, games / seconds);
+    if (out != System.out) {
+      out.close();
+    }
+
+  }
+
+}
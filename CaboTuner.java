@@ -0,0 +1,357 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CaboTuner class is a command-line optimizer for the AIParameters of the standard AI. It runs
+ * an evolution strategy: every generation samples candidate parameters around the current mean,
+ * plays each candidate in one seat against standard AIs in headless games, and moves the mean and
+ * the step sizes towards the best candidates.
+ *
+ * All candidates of a generation play the same games: the same seeds, with the candidate in the
+ * same seat (common random numbers), so their win rates differ by their play rather than by their
+ * luck. Candidates come in mirrored pairs around the mean, which cancels more of the noise. The
+ * games are cut into batches and played on a fixed pool of worker threads, by default one per core.
+ *
+ * Once the search is over, the final mean and the standard parameters both play a fresh set of
+ * games, again with common random numbers, and the report gives both win rates and their difference
+ * with 95% confidence intervals. The tuned parameters are written in the format AIParameters.load()
+ * reads.
+ *
+ * Usage: {@code java CaboTuner <seed> <generations> <games per candidate> [threads] [rules file]
+ * [output file]}
+ */
+public class CaboTuner {
+
+  private static final int BATCH_SIZE = 256;
+  private static final int POPULATION = 16; // candidates per generation, in mirrored pairs
+  private static final int PARENTS = 4; // the best candidates the next mean is made of
+  private static final double[] INITIAL_STEPS = {2, 3, 3};
+  private static final double MIN_STEP = 0.05;
+  private static final int VALIDATION_FACTOR = 10; // validation games per game of a candidate
+  private static final double Z_95 = 1.96;
+
+  /**
+   * The rewards of a set of games, one per game: 1 for a win, 1/n for a tie between n players and
+   * 0 for a loss.
+   */
+  public static class Rewards {
+
+    private final double[] rewards;
+
+    Rewards(int games) {
+      this.rewards = new double[games];
+    }
+
+    /**
+     * Returns the average reward, which is the win rate with ties shared.
+     *
+     * @return the average reward
+     */
+    public double mean() {
+      return Arrays.stream(rewards).average().orElse(0);
+    }
+
+    /**
+     * Returns half the width of the 95% confidence interval of the average reward.
+     *
+     * @return the margin of error of the average
+     */
+    public double margin() {
+      return Z_95 * standardError(rewards);
+    }
+
+    /**
+     * Returns half the width of the 95% confidence interval of the difference between these
+     * rewards and the rewards of the same games played by someone else. As the games are the same,
+     * the interval is computed from the differences game by game, which is much narrower than the
+     * intervals of the two averages.
+     *
+     * @param other the rewards of the same games
+     * @return the margin of error of the difference of the averages
+     */
+    public double marginOfDifference(Rewards other) {
+
+      double[] differences = new double[rewards.length];
+      for (int g = 0; g < rewards.length; g++) {
+        differences[g] = rewards[g] - other.rewards[g];
+      }
+      return Z_95 * standardError(differences);
+
+    }
+
+    private static double standardError(double[] values) {
+
+      double mean = Arrays.stream(values).average().orElse(0);
+      double squares = 0;
+      for (double value : values) {
+        squares += (value - mean) * (value - mean);
+      }
+      return values.length < 2 ? 0
+          : Math.sqrt(squares / (values.length - 1) / values.length);
+
+    }
+
+  }
+
+  /**
+   * Plays a range of games with the candidate in one seat and the opponents in every other seat.
+   * Game g is dealt from seeds[g], and the candidate sits in seat g % the number of players, so
+   * every seat gets its share of the games.
+   *
+   * @param rules     the rules of the games
+   * @param candidate the parameters of the AI being evaluated
+   * @param opponents the parameters of the other AIs
+   * @param seeds     the seeds of all the games
+   * @param from      the first game to play
+   * @param to        the game after the last one to play
+   * @param rewards   the rewards to fill in for the games played
+   */
+  public static void playGames(Ruleset rules, AIParameters candidate, AIParameters opponents,
+      long[] seeds, int from, int to, Rewards rewards) {
+
+    int numPlayers = rules.getNumPlayers();
+    for (int g = from; g < to; g++) {
+      int seat = g % numPlayers;
+      Player[] players = new Player[numPlayers];
+      for (int i = 0; i < numPlayers; i++) {
+        players[i] = new AIPlayer("AI " + (i + 1), i, true, rules,
+            i == seat ? candidate : opponents);
+      }
+
+      CaboEngine engine = new CaboEngine(players, rules, new SplittableRandom(seeds[g]));
+      while (!engine.isGameOver()) {
+        engine.performAITurn();
+      }
+
+      int lowest = Integer.MAX_VALUE;
+      int winners = 0;
+      for (int i = 0; i < numPlayers; i++) {
+        int score = engine.getScore(i);
+        if (score < lowest) {
+          lowest = score;
+          winners = 1;
+        } else if (score == lowest) {
+          winners++;
+        }
+      }
+      rewards.rewards[g] = engine.getScore(seat) == lowest ? 1.0 / winners : 0;
+    }
+
+  }
+
+  /**
+   * Evaluates several candidates on the same games, in batches on a pool of worker threads.
+   *
+   * @param pool       the worker threads
+   * @param rules      the rules of the games
+   * @param candidates the parameters to evaluate
+   * @param opponents  the parameters of the other AIs
+   * @param seeds      the seeds of the games every candidate plays
+   * @return the rewards of every candidate
+   * @throws InterruptedException if interrupted while waiting for the workers
+   * @throws ExecutionException   if a worker failed
+   */
+  public static Rewards[] evaluate(ExecutorService pool, Ruleset rules, AIParameters[] candidates,
+      AIParameters opponents, long[] seeds) throws InterruptedException, ExecutionException {
+
+    Rewards[] rewards = new Rewards[candidates.length];
+    List<Future<?>> batches = new ArrayList<>();
+    for (int c = 0; c < candidates.length; c++) {
+      Rewards candidateRewards = new Rewards(seeds.length);
+      rewards[c] = candidateRewards;
+      AIParameters candidate = candidates[c];
+      for (int first = 0; first < seeds.length; first += BATCH_SIZE) {
+        int from = first;
+        int to = Math.min(seeds.length, first + BATCH_SIZE);
+        batches.add(pool.submit(() -> playGames(rules, candidate, opponents, seeds, from, to,
+            candidateRewards)));
+      }
+    }
+    for (Future<?> batch : batches) {
+      batch.get();
+    }
+    return rewards;
+
+  }
+
+  private static long[] seeds(SplittableRandom random, int games) {
+
+    long[] seeds = new long[games];
+    for (int g = 0; g < games; g++) {
+      seeds[g] = random.nextLong();
+    }
+    return seeds;
+
+  }
+
+  private static double[] toVector(AIParameters parameters) {
+    return new double[] {parameters.getSwapThreshold(), parameters.getCaboThresholdMin(),
+        parameters.getCaboThresholdMax()};
+  }
+
+  private static AIParameters fromVector(double[] x) {
+    return new AIParameters(x[0], Math.min(x[1], x[2]), Math.max(x[1], x[2]));
+  }
+
+  /**
+   * Runs the evolution strategy and reports every generation.
+   *
+   * @param pool        the worker threads
+   * @param rules       the rules of the games
+   * @param random      the source of the candidates and the game seeds
+   * @param generations the number of generations
+   * @param games       the number of games every candidate plays
+   * @param steps       the initial step size of every parameter, replaced by the final ones
+   * @param log         the stream to report the progress to
+   * @return the final mean of the search
+   * @throws InterruptedException if interrupted while waiting for the workers
+   * @throws ExecutionException   if a worker failed
+   */
+  public static AIParameters search(ExecutorService pool, Ruleset rules, SplittableRandom random,
+      int generations, int games, double[] steps, PrintStream log)
+      throws InterruptedException, ExecutionException {
+
+    // the parents are weighted by rank, the best the most
+    double[] weights = new double[PARENTS];
+    double weightTotal = 0;
+    for (int p = 0; p < PARENTS; p++) {
+      weights[p] = Math.log(PARENTS + 0.5) - Math.log(p + 1);
+      weightTotal += weights[p];
+    }
+
+    double[] mean = toVector(AIParameters.DEFAULT);
+    int dimensions = mean.length;
+    for (int generation = 1; generation <= generations; generation++) {
+      double[][] vectors = new double[POPULATION][dimensions];
+      AIParameters[] candidates = new AIParameters[POPULATION];
+      for (int c = 0; c < POPULATION; c += 2) {
+        for (int d = 0; d < dimensions; d++) {
+          double step = steps[d] * random.nextGaussian();
+          vectors[c][d] = mean[d] + step;
+          vectors[c + 1][d] = mean[d] - step;
+        }
+        candidates[c] = fromVector(vectors[c]);
+        candidates[c + 1] = fromVector(vectors[c + 1]);
+      }
+
+      Rewards[] rewards = evaluate(pool, rules, candidates, AIParameters.DEFAULT,
+          seeds(random.split(), games));
+      Integer[] ranking = new Integer[POPULATION];
+      double[] fitness = new double[POPULATION];
+      for (int c = 0; c < POPULATION; c++) {
+        ranking[c] = c;
+        fitness[c] = rewards[c].mean();
+      }
+      Arrays.sort(ranking, (a, b) -> Double.compare(fitness[b], fitness[a]));
+
+      // the new mean is the weighted mean of the parents, and the new steps their spread around
+      // the old mean, kept from collapsing to nothing
+      double[] nextMean = new double[dimensions];
+      double[] spread = new double[dimensions];
+      for (int p = 0; p < PARENTS; p++) {
+        double[] parent = vectors[ranking[p]];
+        for (int d = 0; d < dimensions; d++) {
+          nextMean[d] += weights[p] / weightTotal * parent[d];
+          spread[d] += weights[p] / weightTotal * (parent[d] - mean[d]) * (parent[d] - mean[d]);
+        }
+      }
+      for (int d = 0; d < dimensions; d++) {
+        steps[d] = Math.max(MIN_STEP, Math.sqrt(spread[d]));
+      }
+      mean = nextMean;
+
+      log.printf(Locale.ROOT, "Generation %d: best %.4f, average %.4f, mean %s, steps %s%n",
+          generation, fitness[ranking[0]], Arrays.stream(fitness).average().orElse(0),
+          format(mean), format(steps));
+    }
+    return fromVector(mean);
+
+  }
+
+  private static String format(double[] x) {
+
+    StringBuilder builder = new StringBuilder("(");
+    for (int d = 0; d < x.length; d++) {
+      builder.append(d == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.2f", x[d]));
+    }
+    return builder.append(')').toString();
+
+  }
+
+  /**
+   * Runs the tuner from the command line.
+   *
+   * @param args the seed, the number of generations, the number of games every candidate plays,
+   *             optionally the number of threads (defaults to the number of available processors),
+   *             optionally a properties file with house rules (see Ruleset; "-" for the standard
+   *             rules) and optionally a file to write the tuned parameters to (defaults to standard
+   *             output)
+   */
+  public static void main(String[] args)
+      throws InterruptedException, ExecutionException, IOException {
+
+    if (args.length < 3) {
+      System.err.println("Usage: java CaboTuner <seed> <generations> <games per candidate> "
+          + "[threads] [rules file] [output file]");
+      System.exit(1);
+    }
+
+    long seed = Long.parseLong(args[0]);
+    int generations = Integer.parseInt(args[1]);
+    int games = Integer.parseInt(args[2]);
+    int threads = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+    Ruleset rules = args.length > 4 && !args[4].equals("-") ? Ruleset.load(args[4])
+        : Ruleset.STANDARD;
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      long start = System.nanoTime();
+      SplittableRandom random = new SplittableRandom(seed);
+      System.out.println("Seed: " + seed + ", threads: " + threads + ", " + POPULATION
+          + " candidates of " + games + " games per generation");
+      double[] steps = INITIAL_STEPS.clone();
+      AIParameters tuned = search(pool, rules, random, generations, games, steps, System.out);
+
+      // validate on games the search has never seen, so that lucky candidates don't look better
+      int validationGames = VALIDATION_FACTOR * games;
+      Rewards[] rewards = evaluate(pool, rules, new AIParameters[] {tuned, AIParameters.DEFAULT},
+          AIParameters.DEFAULT, seeds(random.split(), validationGames));
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      StringBuilder report = new StringBuilder();
+      report.append(String.format(Locale.ROOT,
+          "# Validated on %d games against standard AIs, 95%% confidence intervals:%n"
+              + "# tuned:      win rate %.4f +- %.4f%n"
+              + "# standard:   win rate %.4f +- %.4f%n"
+              + "# difference: %+.4f +- %.4f%n"
+              + "# final step sizes: swapThreshold %.2f, caboThresholdMin %.2f, "
+              + "caboThresholdMax %.2f%n",
+          validationGames, rewards[0].mean(), rewards[0].margin(), rewards[1].mean(),
+          rewards[1].margin(), rewards[0].mean() - rewards[1].mean(),
+          rewards[0].marginOfDifference(rewards[1]), steps[0], steps[1], steps[2]));
+      report.append(tuned);
+
+      System.out.print(report);
+      System.out.printf(Locale.ROOT, "Elapsed: %.2f s%n", seconds);
+      if (args.length > 5) {
+        try (PrintStream out = new PrintStream(args[5])) {
+          out.print(report);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+  }
+
+}
@@ -0,0 +1,101 @@
+import java.io.File;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+/**
+ * The CardAtlas class is the shared texture cache for the card images. Each of the 53 images (52
+ * faces and the card back) is decoded once, scaled to card size and packed into a single atlas
+ * image, so drawing a card is an unscaled blit of a region of the atlas.
+ *
+ * The atlas is a grid of 13 columns: row {@code suit} holds the faces of that suit by rank, and
+ * the card back sits at the start of the last row.
+ */
+public class CardAtlas {
+
+  public static final int CARD_WIDTH = 50;
+  public static final int CARD_HEIGHT = 70;
+
+  private static final int COLUMNS = 13;
+  private static final int ROWS = 5;
+
+  private static PImage atlas;
+
+  /**
+   * Loads and packs all card images, unless that has already been done.
+   *
+   * @param processing the sketch used to decode the images
+   */
+  public static void load(PApplet processing) {
+
+    if (atlas != null) {
+      return;
+    }
+
+    PImage packed = processing.createImage(COLUMNS * CARD_WIDTH, ROWS * CARD_HEIGHT, PApplet.ARGB);
+    for (int card = 0; card < Cards.DECK_SIZE; card++) {
+      String imagePath = "images" + File.separator + Cards.rank(card) + "_of_"
+          + Cards.suitName(card).toLowerCase() + ".png";
+      pack(processing, packed, imagePath, column(card), row(card));
+    }
+    pack(processing, packed, "images" + File.separator + "back.png", 0, ROWS - 1);
+    atlas = packed;
+
+  }
+
+  private static void pack(PApplet processing, PImage packed, String imagePath, int column,
+      int row) {
+
+    PImage image = processing.loadImage(imagePath);
+    image.resize(CARD_WIDTH, CARD_HEIGHT);
+    packed.set(column * CARD_WIDTH, row * CARD_HEIGHT, image);
+
+  }
+
+  private static int column(int card) {
+    return Cards.rank(card) - 1;
+  }
+
+  private static int row(int card) {
+    return Cards.suit(card);
+  }
+
+  /**
+   * Draws a card at the given position, loading the atlas first if necessary.
+   *
+   * @param processing the sketch to draw on
+   * @param card       the id of the card
+   * @param faceUp     true to draw the face of the card, false to draw its back
+   * @param x          the x-coordinate of the top-left corner of the card
+   * @param y          the y-coordinate of the top-left corner of the card
+   */
+  public static void draw(PApplet processing, int card, boolean faceUp, int x, int y) {
+
+    load(processing);
+    draw(processing.g, card, faceUp, x, y);
+
+  }
+
+  /**
+   * Draws a card at the given position on the given graphics, for example an off-screen layer.
+   *
+   * @param g      the graphics to draw on
+   * @param card   the id of the card
+   * @param faceUp true to draw the face of the card, false to draw its back
+   * @param x      the x-coordinate of the top-left corner of the card
+   * @param y      the y-coordinate of the top-left corner of the card
+   * @throws IllegalStateException if the atlas has not been loaded yet
+   */
+  public static void draw(PGraphics g, int card, boolean faceUp, int x, int y) {
+
+    if (atlas == null) {
+      throw new IllegalStateException("The card atlas has not been loaded");
+    }
+
+    int u = faceUp ? column(card) * CARD_WIDTH : 0;
+    int v = faceUp ? row(card) * CARD_HEIGHT : (ROWS - 1) * CARD_HEIGHT;
+    g.image(atlas, x, y, CARD_WIDTH, CARD_HEIGHT, u, v, u + CARD_WIDTH, v + CARD_HEIGHT);
+
+  }
+
+}
@@ -0,0 +1,162 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The CardCounter class keeps count of the cards a player has not seen yet. Every card starts out
+ * unseen; when the player sees a card (drawing it, peeking or spying at it, or seeing it land on
+ * the discard pile), it is marked as seen in O(1). The expected value of a card the player cannot
+ * see is then the average score of the unseen cards.
+ *
+ * A card that has been seen stays accounted for: knowledge follows cards when they are switched,
+ * and a card only leaves a hand by going face-up onto the discard pile.
+ */
+public class CardCounter {
+
+  private final Ruleset rules;
+  private final long[] seen; // one bit per card id
+  private int unseenCount;
+  private int unseenTotal; // the total score of the unseen cards
+
+  /**
+   * Creates a counter for which every card of the deck is unseen.
+   *
+   * @param rules the rules that give the cards their scores
+   */
+  public CardCounter(Ruleset rules) {
+
+    this.rules = rules;
+    this.seen = new long[stateSize(rules) / Long.BYTES];
+    this.unseenCount = rules.getDeckSize();
+    for (int card = 0; card < rules.getDeckSize(); card++) {
+      this.unseenTotal += rules.score(card);
+    }
+
+  }
+
+  /**
+   * Returns the number of bytes save() writes for a counter of the given rules.
+   *
+   * @param rules the rules of the counter
+   * @return one bit per card, in whole longs, in bytes
+   */
+  public static int stateSize(Ruleset rules) {
+    return (rules.getDeckSize() + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+  }
+
+  /**
+   * Creates a copy of another counter.
+   *
+   * @param other the counter to copy
+   */
+  public CardCounter(CardCounter other) {
+
+    this.rules = other.rules;
+    this.seen = other.seen.clone();
+    this.unseenCount = other.unseenCount;
+    this.unseenTotal = other.unseenTotal;
+
+  }
+
+  /**
+   * Replaces what this counter has seen with what another counter for the same rules has seen.
+   *
+   * @param other the counter to copy
+   */
+  public void copyFrom(CardCounter other) {
+
+    System.arraycopy(other.seen, 0, seen, 0, seen.length);
+    this.unseenCount = other.unseenCount;
+    this.unseenTotal = other.unseenTotal;
+
+  }
+
+  /**
+   * Forgets every card, as a new round starts, so every card of the deck is unseen again.
+   */
+  public void clear() {
+
+    Arrays.fill(seen, 0L);
+    unseenCount = rules.getDeckSize();
+    unseenTotal = 0;
+    for (int card = 0; card < rules.getDeckSize(); card++) {
+      unseenTotal += rules.score(card);
+    }
+
+  }
+
+  /**
+   * Marks a card as seen. Seeing a card again has no effect.
+   *
+   * @param card the id of the card
+   */
+  public void markSeen(int card) {
+
+    long bit = 1L << card;
+    int word = card >>> 6;
+    if ((seen[word] & bit) == 0) {
+      seen[word] |= bit;
+      unseenCount--;
+      unseenTotal -= rules.score(card);
+    }
+
+  }
+
+  public boolean isSeen(int card) {
+
+    return (seen[card >>> 6] & (1L << card)) != 0;
+
+  }
+
+  public int getUnseenCount() {
+
+    return unseenCount;
+
+  }
+
+  /**
+   * Returns the expected score of a card the player has not seen, which is the average score of
+   * all unseen cards.
+   *
+   * @return the expected score of an unseen card
+   */
+  public double expectedValue() {
+
+    return unseenCount == 0 ? 0 : (double) unseenTotal / unseenCount;
+
+  }
+
+  /**
+   * Writes which cards have been seen to a buffer, as stateSize() bytes.
+   *
+   * @param buffer the buffer to write to, at its position
+   */
+  public void save(ByteBuffer buffer) {
+
+    for (long word : seen) {
+      buffer.putLong(word);
+    }
+
+  }
+
+  /**
+   * Replaces which cards have been seen with what save() wrote to a buffer.
+   *
+   * @param buffer the buffer to read from, at its position
+   */
+  public void restore(ByteBuffer buffer) {
+
+    unseenCount = 0;
+    unseenTotal = 0;
+    for (int i = 0; i < seen.length; i++) {
+      seen[i] = buffer.getLong();
+    }
+    for (int card = 0; card < rules.getDeckSize(); card++) {
+      if (!isSeen(card)) {
+        unseenCount++;
+        unseenTotal += rules.score(card);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * The Cards class defines the compact encoding of CABO cards used by the engine. A card is an int
+ * id from 0 to 51 (suit * 13 + rank - 1); everything the rules need to know about it (rank, suit,
+ * action type and score) is packed into a single int in a lookup table, so scoring and AI decisions
+ * are array reads instead of object and string operations.
+ *
+ * A game may be played with several decks shuffled together (see Ruleset). The copies of a card in
+ * the second deck have the ids of the first deck plus 52, and so on, so every card at the table has
+ * its own id, and the lookup table covers every deck. Card ids fit in an unsigned byte.
+ *
+ * Packed layout: bits 0-3 rank, bits 4-5 suit, bits 6-7 action type, bits 8-31 score (signed).
+ */
+public final class Cards {
+
+  public static final int DECK_SIZE = 52;
+  public static final int MAX_DECKS = 4;
+  public static final int MAX_CARDS = MAX_DECKS * DECK_SIZE;
+  public static final int NONE = -1;
+
+  public static final int CLUBS = 0;
+  public static final int DIAMONDS = 1;
+  public static final int HEARTS = 2;
+  public static final int SPADES = 3;
+
+  public static final int ACTION_NONE = 0;
+  public static final int ACTION_PEEK = 1;
+  public static final int ACTION_SPY = 2;
+  public static final int ACTION_SWITCH = 3;
+
+  private static final String[] SUITS = {"Clubs", "Diamonds", "Hearts", "Spades"};
+  private static final String[] ACTIONS = {"", "peek", "spy", "switch"};
+  private static final String[] ACTION_LABELS = {"", "PEEK", "SPY", "SWITCH"};
+
+  private static final int[] INFO = new int[MAX_CARDS];
+
+  static {
+    for (int card = 0; card < MAX_CARDS; card++) {
+      int rank = card % 13 + 1;
+      int suit = card % DECK_SIZE / 13;
+
+      int action = ACTION_NONE;
+      if (rank == 7 || rank == 8) {
+        action = ACTION_PEEK;
+      } else if (rank == 9 || rank == 10) {
+        action = ACTION_SPY;
+      } else if (rank == 11 || rank == 12) {
+        action = ACTION_SWITCH;
+      }
+
+      int score = (suit == DIAMONDS && rank == 13) ? -1 : rank;
+      INFO[card] = rank | (suit << 4) | (action << 6) | (score << 8);
+    }
+  }
+
+  private Cards() {
+  }
+
+  /**
+   * Returns the id of the card with the given rank and suit.
+   *
+   * @param rank the rank of the card, from 1 (Ace) to 13 (King)
+   * @param suit the suit of the card, one of CLUBS, DIAMONDS, HEARTS or SPADES
+   * @return the id of the card
+   */
+  public static int id(int rank, int suit) {
+    return suit * 13 + rank - 1;
+  }
+
+  /**
+   * Returns a card id read back from a byte, as written by (byte) card.
+   *
+   * @param b the byte
+   * @return the id of the card, or NONE
+   */
+  public static int fromByte(byte b) {
+    return b == (byte) NONE ? NONE : b & 0xFF;
+  }
+
+  public static int rank(int card) {
+    return INFO[card] & 0xF;
+  }
+
+  public static int suit(int card) {
+    return (INFO[card] >> 4) & 0x3;
+  }
+
+  public static int action(int card) {
+    return (INFO[card] >> 6) & 0x3;
+  }
+
+  /**
+   * Returns the number of points the card is worth: its rank, except for the King of Diamonds,
+   * which is worth -1.
+   *
+   * @param card the id of the card
+   * @return the score of the card
+   */
+  public static int score(int card) {
+    return INFO[card] >> 8;
+  }
+
+  public static boolean isAction(int card) {
+    return action(card) != ACTION_NONE;
+  }
+
+  public static String actionName(int action) {
+    return ACTIONS[action];
+  }
+
+  /**
+   * Returns the label of the button that uses an action.
+   *
+   * @param action the action, one of the ACTION_ constants
+   * @return the label for the action, in capitals
+   */
+  public static String actionLabel(int action) {
+    return ACTION_LABELS[action];
+  }
+
+  public static String suitName(int card) {
+    return SUITS[suit(card)];
+  }
+
+  public static String toString(int card) {
+    return suitName(card) + " " + rank(card);
+  }
+
+}
@@ -1,70 +1,169 @@
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.SplittableRandom;
 import processing.core.PApplet;
+import processing.core.PGraphics;
 
 /**
  * The Deck class represents a deck of playing cards for the game Cabo. It manages a collection of
- * cards, including shuffling, drawing, and adding cards.
+ * cards, including shuffling, drawing, and adding cards. Cards are the compact ids defined in
+ * Cards and are kept in a primitive array, with the top of the deck at the end.
  */
 public class Deck {
 
-  // TODO: add everything else
-  protected ArrayList<BaseCard> cardList;
+  protected int[] cardList;
+  protected int size;
+  protected int version; // changes whenever the cards change, see getVersion()
   protected static processing.core.PApplet processing;
 
-  public Deck(ArrayList<BaseCard> deck) {
+  /**
+   * Creates a full deck holding the given cards, with the last one on top.
+   *
+   * @param deck the ids of the cards in the deck
+   */
+  public Deck(int[] deck) {
 
-    if (processing==null) {
-      throw new IllegalStateException();
-    }
     this.cardList = deck;
+    this.size = deck.length;
 
   }
 
-  public void addCard(BaseCard card) {
+  /**
+   * Creates an empty deck that can hold up to the given number of cards.
+   *
+   * @param capacity the maximum number of cards in the deck
+   */
+  public Deck(int capacity) {
 
-    cardList.add(card);
+    this.cardList = new int[capacity];
+    this.size = 0;
+
+  }
+
+  /**
+   * Creates a copy of another deck, with the cards in the same order.
+   *
+   * @param other the deck to copy
+   */
+  public Deck(Deck other) {
+
+    this.cardList = other.cardList.clone();
+    this.size = other.size;
+
+  }
+
+  public void addCard(int card) {
+
+    cardList[size++] = card;
+    version++;
+
+  }
+
+  /**
+   * Removes every card from the deck.
+   */
+  public void clear() {
+
+    size = 0;
+    version++;
+
+  }
+
+  /**
+   * Replaces the cards of this deck with the cards of another deck, in the same order. The other
+   * deck must not hold more cards than this deck can.
+   *
+   * @param other the deck to copy
+   */
+  public void copyFrom(Deck other) {
+
+    System.arraycopy(other.cardList, 0, cardList, 0, other.size);
+    this.size = other.size;
+    version++;
 
   }
 
   public void draw(int x, int y, boolean isDiscard) {
 
+    draw(processing.g, x, y, isDiscard);
+
+  }
+
+  /**
+   * Draws the top card of the deck on the given graphics, in window coordinates.
+   *
+   * @param g         the graphics to draw on
+   * @param x         the x-coordinate of the top-left corner of the deck
+   * @param y         the y-coordinate of the top-left corner of the deck
+   * @param isDiscard true to draw the top card face-up, as on the discard pile
+   */
+  public void draw(PGraphics g, int x, int y, boolean isDiscard) {
+
     if (isEmpty()) {
-      
-      processing.stroke(0);
-      processing.fill(0);
-      processing.rect(x, y, 50, 70, 7);
-      processing.fill(255);
-      processing.textSize(12);
-      processing.textAlign(processing.CENTER, processing.CENTER);
-      processing.text("Empty", x + 25, y + 35);
-      
+
+      g.stroke(0);
+      g.fill(0);
+      g.rect(x, y, 50, 70, 7);
+      g.fill(255);
+      g.textSize(12);
+      g.textAlign(PApplet.CENTER, PApplet.CENTER);
+      g.text("Empty", x + 25, y + 35);
+
     } else {
-      
-      cardList.get(cardList.size()-1).setFaceUp(isDiscard);
-      cardList.get(cardList.size()-1).draw(x, y);
-      
+
+      BaseCard top = BaseCard.forCard(cardList[size - 1]);
+      top.setFaceUp(isDiscard);
+      top.draw(g, x, y);
+
     }
-    
+
   }
 
-  public BaseCard drawCard() {
+  /**
+   * Removes the top card from the deck.
+   *
+   * @return the id of the top card, or Cards.NONE if the deck is empty
+   */
+  public int drawCard() {
 
-    if (cardList == null) {
+    if (size == 0) {
 
-      return null;
+      return Cards.NONE;
 
     } else {
-      
-      return cardList.remove(cardList.size()-1);
+
+      version++;
+      return cardList[--size];
 
     }
 
   }
 
+  /**
+   * Puts every card back in the deck and shuffles it in place, as a new round starts: the deck
+   * holds the cards with ids 0 to its capacity - 1 again, in the order createDeck() would deal them
+   * from the same source of randomness.
+   *
+   * @param random the source of randomness used to shuffle the cards
+   */
+  public void refill(SplittableRandom random) {
+
+    for (int card = 0; card < cardList.length; ++card) {
+      cardList[card] = card;
+    }
+    size = cardList.length;
+    shuffle(cardList, size, random);
+    version++;
+
+  }
+
+  public int getCard(int index) {
+
+    return cardList[index];
+
+  }
+
   public boolean isEmpty() {
 
-    return cardList.isEmpty();
+    return size == 0;
 
   }
 
@@ -74,9 +173,21 @@ public class Deck {
 
   }
 
+  /**
+   * Returns a number that changes whenever cards are added, removed or moved, or turned face-up or
+   * face-down in a hand, so that a view of the deck knows when to redraw it.
+   *
+   * @return the version of the deck
+   */
+  public int getVersion() {
+
+    return version;
+
+  }
+
   public int size() {
 
-    return cardList.size();
+    return size;
 
   }
 
@@ -84,36 +195,54 @@ public class Deck {
    * Sets up the deck with CABO cards, including action cards. Initializes the deck with all
    * necessary cards and shuffles them.
    *
-   * @return the completed ArrayList of CABO cards
+   * @return the completed array of CABO card ids
+   */
+  public static int[] createDeck() {
+    return createDeck(new SplittableRandom());
+  }
+
+  /**
+   * Sets up the deck with CABO cards, including action cards, and shuffles them with the given
+   * source of randomness.
+   *
+   * @param random the source of randomness used to shuffle the deck
+   * @return the completed array of CABO card ids
+   */
+  public static int[] createDeck(SplittableRandom random) {
+    return createDeck(Cards.DECK_SIZE, random);
+  }
+
+  /**
+   * Sets up a shuffled pile of the cards with ids 0 to size - 1, such as several decks together
+   * (see Ruleset.getDeckSize()).
+   *
+   * @param size   the number of cards
+   * @param random the source of randomness used to shuffle the cards
+   * @return the shuffled card ids
    */
-  public static ArrayList<BaseCard> createDeck() {
-    ArrayList<BaseCard> cardList = new ArrayList<>();
-
-    // Define the suits
-    String[] suits = {"Clubs", "Diamonds", "Hearts", "Spades"};
-
-    // Cards from 1 (Ace) to 13 (King)
-    for (int rank = 1; rank <= 13; ++rank) {
-      // Loop through each suit
-      for (String suit : suits) {
-        if (rank >= 7 && rank <= 12) {
-          // Special action cards
-          String actionType = "";
-          if (rank == 7 || rank == 8) {
-            actionType = "peek";
-          } else if (rank == 9 || rank == 10) {
-            actionType = "spy";
-          } else {
-            actionType = "switch";
-          }
-          cardList.add(new ActionCard(rank, suit, actionType)); // Add ActionCard to deck
-        } else {
-          cardList.add(new BaseCard(rank, suit)); // Add NumberCard to deck
-        }
-      }
+  public static int[] createDeck(int size, SplittableRandom random) {
+    int[] cardList = new int[size];
+    for (int card = 0; card < cardList.length; ++card) {
+      cardList[card] = card;
     }
-    Collections.shuffle(cardList);
+    shuffle(cardList, cardList.length, random);
     return cardList;
   }
 
+  /**
+   * Shuffles the first {@code size} cards of the array in place (Fisher-Yates).
+   *
+   * @param cards  the card ids to shuffle
+   * @param size   the number of cards to shuffle
+   * @param random the source of randomness
+   */
+  public static void shuffle(int[] cards, int size, SplittableRandom random) {
+    for (int i = size - 1; i > 0; --i) {
+      int j = random.nextInt(i + 1);
+      int card = cards[i];
+      cards[i] = cards[j];
+      cards[j] = card;
+    }
+  }
+
 }
@@ -0,0 +1,525 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The EndgameSolver class decides the last turn of an AI player, once another player has declared
+ * CABO. Every player then has at most one turn left, so instead of following a rule of thumb the AI
+ * can work out which use of its drawn card gives it the best chance to win: the solver tries every
+ * move, and averages over every card each of the following players may draw (expectimax), up to the
+ * end of the game.
+ *
+ * The solver only uses what the AI knows. A card it knows counts with its score; any other card,
+ * at the table or in the deck, is one of the cards the AI has not seen yet, and is treated as an
+ * independent draw from them. The other players are assumed to use their card for their own good:
+ * they make the swap or switch that lowers their expected score the most, if any. Peeking and
+ * spying are worth nothing in the last round, so they count as discarding. The search covers the
+ * next two turns, which is every turn left at a table of up to four players; at larger tables the
+ * players after those are assumed to keep their hands.
+ *
+ * Hands are reduced to how many cards of every score they hold, since that is all the outcome
+ * depends on, and positions reached in different ways are looked up in a transposition table keyed
+ * by a Zobrist hash of the hands. A solver keeps its table between decisions but is not
+ * thread-safe; every AI player that uses one should have its own (see AIPlayer.setEndgameSolver()).
+ */
+public class EndgameSolver {
+
+  private static final double EPSILON = 1e-9;
+  private static final int SEARCHED_TURNS = 2;
+  private static final int TABLE_SIZE = 1 << 14; // entries of the transposition table
+  private static final long ZOBRIST_SEED = 0x5A0B415CL;
+
+  private final int handSize;
+  private final int numPlayers;
+  private final Ruleset rules;
+  private final int unknown; // the score class of a card the AI doesn't know
+  private final int[] values; // the score of every score class, in increasing order
+
+  // Zobrist keys: one for the k-th card of every score class in every hand, and one per turn
+  private final long[] handKeys;
+  private final long[] turnKeys;
+
+  // the transposition table; entries of an earlier decision have an older generation
+  private int generation;
+  private int[] tableGenerations;
+  private long[] tableKeys;
+  private double[] tableValues;
+
+  // the position being searched: the number of cards of every score class in every hand
+  private final int[][] counts;
+  private long hash;
+  private final int[] knownTotals;
+  private int root;
+  private final int[] turns; // the seats still to play after the AI, in order
+  private int turnCount;
+
+  // what the AI expects of a card it cannot see
+  private double unknownValue;
+  private final double[] plainDraws; // by score class, the chance to draw a card without a switch
+  private final double[] switchDraws; // by score class, the chance to draw a switch card
+  private final double[][] sums; // by number of cards, the distribution of their total score
+  private final double[][] sumsAbove; // by number of cards, the chance their total is higher
+  private final double[] ties;
+
+  private double winChance;
+
+  /**
+   * Creates a solver for games by the given rules.
+   *
+   * @param rules the rules of the games
+   */
+  public EndgameSolver(Ruleset rules) {
+
+    this.rules = rules;
+    this.numPlayers = rules.getNumPlayers();
+    this.handSize = rules.getHandSize();
+
+    int[] scores = new int[rules.getDeckSize()];
+    for (int card = 0; card < scores.length; card++) {
+      scores[card] = rules.score(card);
+    }
+    this.values = Arrays.stream(scores).distinct().sorted().toArray();
+    this.unknown = values.length;
+
+    SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+    this.handKeys = new long[numPlayers * (unknown + 1) * handSize];
+    for (int i = 0; i < handKeys.length; i++) {
+      handKeys[i] = random.nextLong();
+    }
+    this.turnKeys = new long[numPlayers + 1];
+    for (int i = 0; i < turnKeys.length; i++) {
+      turnKeys[i] = random.nextLong();
+    }
+
+    this.counts = new int[numPlayers][unknown + 1];
+    this.knownTotals = new int[numPlayers];
+    this.turns = new int[numPlayers];
+    this.plainDraws = new double[unknown];
+    this.switchDraws = new double[unknown];
+    this.sums = new double[handSize + 1][];
+    this.sumsAbove = new double[handSize + 1][];
+    this.ties = new double[numPlayers + 1];
+
+  }
+
+  /**
+   * Finds the best use of the card the given AI player has drawn in the last round of a game.
+   *
+   * @param engine the game, after someone has declared CABO, with the card drawn by the player
+   * @param player the AI player whose turn it is
+   * @return the move to make with the drawn card, as encoded by Moves: discarding, swapping or
+   *         switching
+   * @throws IllegalStateException if nobody has declared CABO, or the player has not drawn a card
+   */
+  public int solve(CaboEngine engine, AIPlayer player) {
+
+    if (engine.getCaboPlayer() == -1 || engine.getDrawnCard() == Cards.NONE) {
+      throw new IllegalStateException("Not a drawn card in the last round");
+    }
+    if (tableKeys == null) {
+      tableKeys = new long[TABLE_SIZE];
+      tableValues = new double[TABLE_SIZE];
+      tableGenerations = new int[TABLE_SIZE];
+    }
+    generation++;
+
+    setUp(engine, player);
+
+    // the moves that make a different position are searched once each, in order, and the first
+    // of the best ones is played
+    Player[] players = engine.getPlayers();
+    int drawn = classOf(engine.getDrawnCard());
+    int[] moves = candidateMoves(engine, player);
+    long[] effects = new long[moves.length];
+    int bestMove = Moves.discard();
+    double best = Double.NEGATIVE_INFINITY;
+    for (int m = 0; m < moves.length; m++) {
+      int move = moves[m];
+      int mine = Moves.type(move) == Moves.DISCARD ? -1
+          : slotClass(player, players[root], Moves.slot(move));
+      int seat = Moves.type(move) == Moves.SWITCH ? Moves.seat(move) : -1;
+      int theirs = seat == -1 ? -1 : slotClass(player, players[seat], Moves.otherSlot(move));
+      effects[m] = ((long) (mine + 1) << 32) | ((long) (seat + 1) << 16) | (theirs + 1);
+      if (indexOf(effects, m, effects[m]) != -1) {
+        continue;
+      }
+
+      double chance;
+      if (Moves.type(move) == Moves.SWAP) {
+        replace(root, mine, drawn);
+        chance = chanceNode(0);
+        replace(root, drawn, mine);
+      } else if (Moves.type(move) == Moves.SWITCH) {
+        exchange(root, mine, seat, theirs);
+        chance = chanceNode(0);
+        exchange(root, theirs, seat, mine);
+      } else {
+        chance = chanceNode(0);
+      }
+      if (chance > best + EPSILON) {
+        best = chance;
+        bestMove = move;
+      }
+    }
+
+    winChance = best;
+    return bestMove;
+
+  }
+
+  /**
+   * Returns the chance to win of the move the solver last found, counting a tie for the lowest
+   * score between n players as 1/n of a win.
+   *
+   * @return the chance to win, between 0 and 1
+   */
+  public double getWinChance() {
+    return winChance;
+  }
+
+  private static int indexOf(long[] array, int length, long value) {
+
+    for (int i = 0; i < length; i++) {
+      if (array[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+
+  }
+
+  /**
+   * Puts the position the AI sees in the search state, and works out what it expects of the cards
+   * it cannot see.
+   */
+  private void setUp(CaboEngine engine, AIPlayer player) {
+
+    Player[] players = engine.getPlayers();
+    root = engine.getCurrentPlayer();
+    hash = 0;
+    for (int seat = 0; seat < numPlayers; seat++) {
+      Arrays.fill(counts[seat], 0);
+      knownTotals[seat] = 0;
+      Hand hand = players[seat].getHand();
+      for (int j = 0; j < hand.size(); j++) {
+        add(seat, slotClass(player, players[seat], j));
+      }
+    }
+
+    // every player up to the one who declared CABO plays once more, until the deck runs out
+    turnCount = 0;
+    for (int seat = (root + 1) % numPlayers; seat != engine.getCaboPlayer();
+        seat = (seat + 1) % numPlayers) {
+      turns[turnCount++] = seat;
+    }
+    turnCount = Math.min(Math.min(turnCount, engine.getDeck().size()), SEARCHED_TURNS);
+
+    // the cards the AI has not seen, or the whole deck if it has seen them all
+    Arrays.fill(plainDraws, 0);
+    Arrays.fill(switchDraws, 0);
+    int unseen = 0;
+    for (int card = 0; card < rules.getDeckSize(); card++) {
+      if (!player.hasSeen(card)) {
+        unseen++;
+      }
+    }
+    double total = 0;
+    for (int card = 0; card < rules.getDeckSize(); card++) {
+      if (unseen == 0 || !player.hasSeen(card)) {
+        double[] draws = rules.action(card) == Cards.ACTION_SWITCH ? switchDraws : plainDraws;
+        draws[classOf(card)]++;
+        total += rules.score(card);
+      }
+    }
+    int pool = unseen == 0 ? rules.getDeckSize() : unseen;
+    unknownValue = total / pool;
+
+    // the distribution of the total score of k unknown cards, from the lowest possible total up
+    int width = values[unknown - 1] - values[0] + 1;
+    double[] single = new double[width];
+    for (int c = 0; c < unknown; c++) {
+      plainDraws[c] /= pool;
+      switchDraws[c] /= pool;
+      single[values[c] - values[0]] += plainDraws[c] + switchDraws[c];
+    }
+    sums[0] = new double[] {1};
+    for (int k = 1; k <= handSize; k++) {
+      double[] previous = sums[k - 1];
+      double[] next = new double[previous.length + width - 1];
+      for (int i = 0; i < previous.length; i++) {
+        for (int v = 0; v < width; v++) {
+          next[i + v] += previous[i] * single[v];
+        }
+      }
+      sums[k] = next;
+    }
+    for (int k = 0; k <= handSize; k++) {
+      double[] above = new double[sums[k].length];
+      for (int i = above.length - 2; i >= 0; i--) {
+        above[i] = above[i + 1] + sums[k][i + 1];
+      }
+      sumsAbove[k] = above;
+    }
+
+  }
+
+  /**
+   * Lists every way of using the drawn card that can change the outcome: discarding it, swapping
+   * it into any slot, and every switch of a switch card.
+   */
+  private int[] candidateMoves(CaboEngine engine, AIPlayer player) {
+
+    Player[] players = engine.getPlayers();
+    int size = player.getHand().size();
+    boolean canSwitch = rules.action(engine.getDrawnCard()) == Cards.ACTION_SWITCH;
+    int[] moves = new int[1 + size + (canSwitch ? size * size * numPlayers : 0)];
+    int count = 0;
+    moves[count++] = Moves.discard();
+    for (int i = 0; i < size; i++) {
+      moves[count++] = Moves.swap(i);
+    }
+    for (int i = 0; canSwitch && i < size; i++) {
+      for (int seat = 0; seat < numPlayers; seat++) {
+        for (int j = 0; seat != root && j < players[seat].getHand().size(); j++) {
+          moves[count++] = Moves.switchCards(i, seat, j);
+        }
+      }
+    }
+    return Arrays.copyOf(moves, count);
+
+  }
+
+  /**
+   * Returns the chance of the AI to win from the start of a turn, averaged over the cards the player
+   * of the turn may draw.
+   *
+   * @param turn the index of the turn in the turns still to play
+   */
+  private double chanceNode(int turn) {
+
+    long key = hash ^ turnKeys[turn];
+    int entry = (int) (key ^ (key >>> 32)) & (TABLE_SIZE - 1);
+    if (tableGenerations[entry] == generation && tableKeys[entry] == key) {
+      return tableValues[entry];
+    }
+
+    double chance;
+    if (turn == turnCount) {
+      chance = winChance();
+    } else {
+      // every draw the player doesn't use leads to the same position, which is searched once
+      chance = 0;
+      double unused = 0;
+      for (int c = 0; c < unknown; c++) {
+        if (plainDraws[c] > 0) {
+          double after = playTurn(turn, c, false);
+          if (Double.isNaN(after)) {
+            unused += plainDraws[c];
+          } else {
+            chance += plainDraws[c] * after;
+          }
+        }
+        if (switchDraws[c] > 0) {
+          double after = playTurn(turn, c, true);
+          if (Double.isNaN(after)) {
+            unused += switchDraws[c];
+          } else {
+            chance += switchDraws[c] * after;
+          }
+        }
+      }
+      if (unused > 0) {
+        chance += unused * chanceNode(turn + 1);
+      }
+    }
+
+    tableGenerations[entry] = generation;
+    tableKeys[entry] = key;
+    tableValues[entry] = chance;
+    return chance;
+
+  }
+
+  /**
+   * Plays the turn of another player who has drawn a card of the given score class: it puts the
+   * card in place of its worst card if that lowers its expected score, or switches its worst card
+   * for the best card of another player if that lowers it more.
+   *
+   * @return the chance of the AI to win after the turn, or NaN if the player discards the card
+   */
+  private double playTurn(int turn, int drawn, boolean canSwitch) {
+
+    int seat = turns[turn];
+    int worst = worstClass(seat);
+    double swapGain = valueOf(worst) - values[drawn];
+
+    int otherSeat = -1;
+    int lowest = -1;
+    if (canSwitch) {
+      for (int i = 1; i < numPlayers; i++) {
+        int other = (seat + i) % numPlayers;
+        int best = bestClass(other);
+        if (best != -1 && (lowest == -1 || valueOf(best) < valueOf(lowest) - EPSILON)) {
+          otherSeat = other;
+          lowest = best;
+        }
+      }
+    }
+    double switchGain = lowest == -1 ? 0 : valueOf(worst) - valueOf(lowest);
+
+    double chance;
+    if (switchGain > EPSILON && switchGain > swapGain + EPSILON) {
+      exchange(seat, worst, otherSeat, lowest);
+      chance = chanceNode(turn + 1);
+      exchange(seat, lowest, otherSeat, worst);
+    } else if (swapGain > EPSILON) {
+      replace(seat, worst, drawn);
+      chance = chanceNode(turn + 1);
+      replace(seat, drawn, worst);
+    } else {
+      chance = Double.NaN;
+    }
+    return chance;
+
+  }
+
+  /**
+   * Returns the chance of the AI to win with the hands as they are, counting a tie for the lowest
+   * score between n players as 1/n of a win.
+   */
+  private double winChance() {
+
+    int low = values[0];
+    int rootUnknown = counts[root][unknown];
+    double[] rootSums = sums[rootUnknown];
+    double chance = 0;
+    for (int i = 0; i < rootSums.length; i++) {
+      if (rootSums[i] == 0) {
+        continue;
+      }
+      int score = knownTotals[root] + rootUnknown * low + i;
+      double lowest = 1; // the chance that nobody else has a lower score
+
+      // ties[m] is the chance that m other players have the same score and the rest a higher one
+      ties[0] = 1;
+      int others = 0;
+      for (int seat = 0; seat < numPlayers; seat++) {
+        if (seat == root) {
+          continue;
+        }
+        int k = counts[seat][unknown];
+        int index = score - knownTotals[seat] - k * low;
+        double same = index >= 0 && index < sums[k].length ? sums[k][index] : 0;
+        double above = index < 0 ? 1 : index < sums[k].length ? sumsAbove[k][index] : 0;
+        ties[others + 1] = ties[others] * same;
+        for (int m = others; m > 0; m--) {
+          ties[m] = ties[m] * above + ties[m - 1] * same;
+        }
+        ties[0] *= above;
+        lowest *= above + same;
+        others++;
+      }
+      if (lowest == 0) {
+        break; // a higher score can't be the lowest either
+      }
+
+      double share = 0;
+      for (int m = 0; m <= others; m++) {
+        share += ties[m] / (m + 1);
+      }
+      chance += rootSums[i] * share;
+    }
+    return chance;
+
+  }
+
+  /**
+   * Returns the score class of the card at a slot of a hand, as the AI sees it.
+   */
+  private int slotClass(AIPlayer player, Player owner, int slot) {
+
+    if (!player.getCardKnowledge(owner.getLabel(), slot)) {
+      return unknown;
+    }
+    return classOf(owner.getHand().getCard(slot));
+
+  }
+
+  private int classOf(int card) {
+    return Arrays.binarySearch(values, rules.score(card));
+  }
+
+  private double valueOf(int scoreClass) {
+    return scoreClass == unknown ? unknownValue : values[scoreClass];
+  }
+
+  /**
+   * Returns the score class of the card a player expects to be worth the most in its hand.
+   */
+  private int worstClass(int seat) {
+
+    int worst = -1;
+    for (int c = 0; c <= unknown; c++) {
+      if (counts[seat][c] > 0 && (worst == -1 || valueOf(c) > valueOf(worst) + EPSILON)) {
+        worst = c;
+      }
+    }
+    return worst;
+
+  }
+
+  /**
+   * Returns the score class of the card a player expects to be worth the least in its hand.
+   */
+  private int bestClass(int seat) {
+
+    int best = -1;
+    for (int c = 0; c <= unknown; c++) {
+      if (counts[seat][c] > 0 && (best == -1 || valueOf(c) < valueOf(best) - EPSILON)) {
+        best = c;
+      }
+    }
+    return best;
+
+  }
+
+  /**
+   * Replaces a card of one score class by a card of another in a hand.
+   */
+  private void replace(int seat, int from, int to) {
+
+    remove(seat, from);
+    add(seat, to);
+
+  }
+
+  /**
+   * Switches a card of one hand with a card of another.
+   */
+  private void exchange(int seat, int mine, int otherSeat, int theirs) {
+
+    replace(seat, mine, theirs);
+    replace(otherSeat, theirs, mine);
+
+  }
+
+  private void add(int seat, int scoreClass) {
+
+    hash ^= handKeys[(seat * (unknown + 1) + scoreClass) * handSize + counts[seat][scoreClass]];
+    counts[seat][scoreClass]++;
+    if (scoreClass != unknown) {
+      knownTotals[seat] += values[scoreClass];
+    }
+
+  }
+
+  private void remove(int seat, int scoreClass) {
+
+    counts[seat][scoreClass]--;
+    hash ^= handKeys[(seat * (unknown + 1) + scoreClass) * handSize + counts[seat][scoreClass]];
+    if (scoreClass != unknown) {
+      knownTotals[seat] -= values[scoreClass];
+    }
+
+  }
+
+}
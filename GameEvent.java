@@ -0,0 +1,230 @@
+/**
+ * The GameEvent class defines the compact encoding of the events of a game: the deal, whose turn it
+ * is, what the players did with their cards, the end of the game, and the hints shown to a human
+ * player. An event is a single long, so the engine can report events to its listeners without
+ * allocating; the text of an event is only formatted when it is shown.
+ *
+ * Events carry the cards involved even when the players can't see them (the card drawn, peeked at,
+ * spied on or swapped out), so that a journal of the events is a complete record of the game.
+ *
+ * Packed layout: bits 0-7 type, bits 8-15 seat of the acting player, bits 16-23 slot in the acting
+ * player's hand, bits 24-31 seat of the other player, bits 32-39 slot in the other player's hand,
+ * bits 40-47 card id (all ones for no card). A SCORE event keeps its score, a signed 16-bit number,
+ * in bits 48-63.
+ */
+public final class GameEvent {
+
+  public static final int TURN = 0;
+  public static final int AI_TURN = 1;
+  public static final int DRAW = 2;
+  public static final int DISCARD = 3;
+  public static final int SWAP = 4;
+  public static final int PEEK = 5;
+  public static final int SPY = 6;
+  public static final int SWITCH = 7;
+  public static final int CABO = 8;
+  public static final int HINT_SWAP = 9;
+  public static final int HINT_PEEK = 10;
+  public static final int HINT_SPY = 11;
+  public static final int HINT_SWITCH = 12;
+  public static final int GAME_START = 13;
+  public static final int DEAL = 14;
+  public static final int GAME_OVER = 15;
+  public static final int SCORE = 16;
+
+  /**
+   * The actor of a GAME_OVER event that ends in a tie.
+   */
+  public static final int NO_WINNER = 0xFF;
+
+  private GameEvent() {
+  }
+
+  /**
+   * Returns an event of the given type that only involves the acting player.
+   *
+   * @param type  the type of the event
+   * @param actor the seat of the acting player
+   * @return the event
+   */
+  public static long of(int type, int actor) {
+    return of(type, actor, 0, 0, 0, Cards.NONE);
+  }
+
+  /**
+   * Returns the event that starts a game.
+   *
+   * @param numPlayers the number of players, stored as the seat of the event
+   * @param handSize   the number of cards in a hand, stored as the slot of the event
+   * @return the event
+   */
+  public static long gameStart(int numPlayers, int handSize) {
+    return of(GAME_START, 0, handSize, numPlayers, 0, Cards.NONE);
+  }
+
+  public static long deal(int actor, int slot, int card) {
+    return of(DEAL, actor, slot, 0, 0, card);
+  }
+
+  public static long draw(int actor, int card) {
+    return of(DRAW, actor, 0, 0, 0, card);
+  }
+
+  public static long discard(int actor, int card) {
+    return of(DISCARD, actor, 0, 0, 0, card);
+  }
+
+  /**
+   * Returns the event of a player swapping the drawn card into their hand.
+   *
+   * @param actor the seat of the player
+   * @param slot  the slot the drawn card was put in
+   * @param card  the card that was swapped out onto the discard pile
+   * @return the event
+   */
+  public static long swap(int actor, int slot, int card) {
+    return of(SWAP, actor, slot, 0, 0, card);
+  }
+
+  public static long peek(int actor, int slot, int card) {
+    return of(PEEK, actor, slot, 0, 0, card);
+  }
+
+  public static long spy(int actor, int seat, int otherSlot, int card) {
+    return of(SPY, actor, 0, seat, otherSlot, card);
+  }
+
+  public static long switchCards(int actor, int slot, int seat, int otherSlot) {
+    return of(SWITCH, actor, slot, seat, otherSlot, Cards.NONE);
+  }
+
+  private static long of(int type, int actor, int slot, int seat, int otherSlot, int card) {
+    return type | (actor << 8) | (slot << 16) | ((long) seat << 24) | ((long) otherSlot << 32)
+        | ((long) (card & 0xFF) << 40);
+  }
+
+  public static int type(long event) {
+    return (int) (event & 0xFF);
+  }
+
+  public static int actor(long event) {
+    return (int) ((event >> 8) & 0xFF);
+  }
+
+  public static int slot(long event) {
+    return (int) ((event >> 16) & 0xFF);
+  }
+
+  public static int seat(long event) {
+    return (int) ((event >> 24) & 0xFF);
+  }
+
+  public static int otherSlot(long event) {
+    return (int) ((event >> 32) & 0xFF);
+  }
+
+  /**
+   * Returns the card of the event.
+   *
+   * @param event the event
+   * @return the id of the card, or Cards.NONE if the event has no card
+   */
+  public static int card(long event) {
+    int card = (int) ((event >> 40) & 0xFF);
+    return card == 0xFF ? Cards.NONE : card;
+  }
+
+  /**
+   * Returns the event that ends a game.
+   *
+   * @param winner  the seat of the winner, or -1 if the game ended in a tie
+   * @param deckOut whether the game ended because a player drew from an empty deck, stored as the
+   *                slot of the event
+   * @return the event
+   */
+  public static long gameOver(int winner, boolean deckOut) {
+    return of(GAME_OVER, winner == -1 ? NO_WINNER : winner, deckOut ? 1 : 0, 0, 0, Cards.NONE);
+  }
+
+  /**
+   * Returns whether a GAME_OVER event ended the game on a draw from an empty deck.
+   *
+   * @param event the GAME_OVER event
+   * @return true if the deck ran out
+   */
+  public static boolean isDeckOut(long event) {
+    return slot(event) == 1;
+  }
+
+  /**
+   * Returns the event that gives a player's final score, just before the end of the game.
+   *
+   * @param actor the seat of the player
+   * @param score the score, from Short.MIN_VALUE to Short.MAX_VALUE (see Ruleset)
+   * @return the event
+   */
+  public static long score(int actor, int score) {
+    return of(SCORE, actor, 0, 0, 0, Cards.NONE) | ((long) (score & 0xFFFF) << 48);
+  }
+
+  /**
+   * Returns the score of a SCORE event.
+   *
+   * @param event the SCORE event
+   * @return the score, which may be negative by some house rules
+   */
+  public static int score(long event) {
+    return (short) (event >>> 48);
+  }
+
+  /**
+   * Returns whether the event is shown to the players in the game log. The deal, the start, the
+   * scores and the end of the game are only recorded in journals.
+   *
+   * @param event the event
+   * @return true if the event is shown in the game log
+   */
+  public static boolean isShown(long event) {
+    int type = type(event);
+    return type != GAME_START && type != DEAL && type != SCORE && type != GAME_OVER;
+  }
+
+  /**
+   * Formats the event as a message for the players.
+   *
+   * @param event   the event
+   * @param players the players of the game, for their names
+   * @return the text of the event
+   */
+  public static String toString(long event, Player[] players) {
+    String actor = actor(event) < players.length ? players[actor(event)].getName() : "";
+    return switch (type(event)) {
+      case TURN -> "Turn for " + actor;
+      case AI_TURN -> actor + " is taking their turn.";
+      case DRAW -> actor + " drew a card.";
+      case DISCARD -> actor + " discarded the drawn card: " + Cards.toString(card(event));
+      case SWAP -> actor + " swapped the drawn card with card " + (slot(event) + 1)
+          + " in their hand.";
+      case PEEK -> actor + " peeked at their card " + (slot(event) + 1) + ".";
+      case SPY -> actor + " spied on " + players[seat(event)].getName() + "'s card "
+          + (otherSlot(event) + 1) + ".";
+      case SWITCH -> actor + " switched card " + (slot(event) + 1) + " with "
+          + players[seat(event)].getName() + "'s " + (otherSlot(event) + 1) + ".";
+      case CABO -> actor + " declares CABO!";
+      case HINT_SWAP -> "Click a card in your hand to swap it with the drawn card.";
+      case HINT_PEEK -> "Click a card in your hand to peek at it.";
+      case HINT_SPY -> "Click a card in another player's hand to spy on it.";
+      case HINT_SWITCH -> "Click a card from your hand, then a card from another Kingdom's hand "
+          + "to switch.";
+      case GAME_START -> "A game of " + seat(event) + " players with " + slot(event)
+          + " cards each starts.";
+      case DEAL -> actor + " was dealt card " + (slot(event) + 1) + ": "
+          + Cards.toString(card(event));
+      case GAME_OVER -> actor(event) == NO_WINNER ? "Game over! It's a tie."
+          : "Game over! Winner: " + actor;
+      case SCORE -> actor + " scored " + score(event) + ".";
+      default -> "Unknown event " + type(event);
+    };
+  }
+
+}
@@ -0,0 +1,181 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameJournal class appends the events of games (see GameEvent) to a binary file, as an audit
+ * trail of every game played. Each event is an 8-byte little-endian record; a game starts with a
+ * GAME_START record and its deal, and ends with a GAME_OVER record, so one journal can hold any
+ * number of games one after the other. The file starts with an 8-byte header: the magic number
+ * "CABOJRNL".
+ *
+ * Records are collected in a direct buffer and written to the file through a FileChannel once the
+ * buffer is full, at the end of every game and on flush() or close(). Alternatively the journal
+ * can write into a memory-mapped region at the end of the file, which it extends as it grows; the
+ * file is trimmed to the records written when the journal is closed. A mapped journal that was not
+ * closed ends in zero records, which are not valid events (a TURN event has no card).
+ *
+ * A journal can be a listener of a single game. Concurrent games, such as those of a tournament,
+ * should collect their events and append each game as a whole with append(long[], int).
+ */
+public class GameJournal implements GameListener, Closeable {
+
+  public static final long MAGIC = 0x4C4E524A4F424143L; // "CABOJRNL" in little-endian order
+  public static final int RECORD_SIZE = Long.BYTES;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAP_SIZE = 4 * 1024 * 1024;
+
+  private ByteBuffer buffer; // the pending records, or the current mapped region
+  private final FileChannel channel;
+  private final boolean mapped;
+  private long position; // where the buffer starts in the file
+
+  /**
+   * Opens a journal for appending, creating the file if it doesn't exist.
+   *
+   * @param path   the journal file
+   * @param mapped true to write through a memory-mapped region of the file, false to write
+   *               through a buffer
+   * @throws IOException if the file cannot be opened, or is not a journal
+   */
+  public GameJournal(Path path, boolean mapped) throws IOException {
+
+    this.mapped = mapped;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    this.position = channel.size();
+
+    if (position == 0) {
+      ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header.putLong(MAGIC).flip();
+      channel.write(header, 0);
+      position = RECORD_SIZE;
+    } else if (position % RECORD_SIZE != 0 || readMagic() != MAGIC) {
+      channel.close();
+      throw new IOException(path + " is not a game journal");
+    }
+
+    this.buffer = mapped ? map() : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+  }
+
+  private long readMagic() throws IOException {
+
+    ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    channel.read(header, 0);
+    return header.flip().getLong();
+
+  }
+
+  private MappedByteBuffer map() throws IOException {
+
+    return channel.map(FileChannel.MapMode.READ_WRITE, position, MAP_SIZE);
+
+  }
+
+  /**
+   * Appends an event. At the end of a game, the journal is flushed.
+   *
+   * @param event the event, as encoded by GameEvent
+   * @throws UncheckedIOException if the journal cannot be written
+   */
+  @Override
+  public synchronized void onEvent(long event) {
+
+    try {
+      put(event);
+      if (GameEvent.type(event) == GameEvent.GAME_OVER) {
+        flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+  }
+
+  /**
+   * Appends a batch of events, such as a complete game, without any other events in between.
+   *
+   * @param events the events, as encoded by GameEvent
+   * @param count  the number of events to append, from the start of the array
+   * @throws IOException if the journal cannot be written
+   */
+  public synchronized void append(long[] events, int count) throws IOException {
+
+    for (int i = 0; i < count; i++) {
+      put(events[i]);
+    }
+
+  }
+
+  private void put(long event) throws IOException {
+
+    if (!buffer.hasRemaining()) {
+      writeBuffer();
+    }
+    buffer.putLong(event);
+
+  }
+
+  /**
+   * Writes the buffered events to the file, or moves on to the next mapped region.
+   */
+  private void writeBuffer() throws IOException {
+
+    if (mapped) {
+      position += buffer.position();
+      ((MappedByteBuffer) buffer).force();
+      buffer = map().order(ByteOrder.LITTLE_ENDIAN);
+    } else {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      buffer.clear();
+    }
+
+  }
+
+  /**
+   * Writes all buffered events to the file.
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  public synchronized void flush() throws IOException {
+
+    if (mapped) {
+      ((MappedByteBuffer) buffer).force();
+    } else {
+      writeBuffer();
+    }
+
+  }
+
+  /**
+   * Writes all buffered events and closes the file.
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+
+    if (!channel.isOpen()) {
+      return;
+    }
+    flush();
+    if (mapped) {
+      channel.truncate(position + buffer.position());
+    }
+    channel.close();
+
+  }
+
+}
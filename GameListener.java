@@ -0,0 +1,15 @@
+/**
+ * The GameListener interface is implemented by everything that follows the events of a game as
+ * they happen, such as the game log shown on the screen and journals on disk. The engine calls it
+ * on the thread that owns the game, once for every event, in order.
+ */
+public interface GameListener {
+
+  /**
+   * Called when something happens in the game.
+   *
+   * @param event the event, as encoded by GameEvent
+   */
+  void onEvent(long event);
+
+}
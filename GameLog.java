@@ -0,0 +1,110 @@
+/**
+ * The GameLog class keeps the most recent events of a game (see GameEvent) in a fixed-capacity ring
+ * buffer. Adding an event is O(1) and never allocates; once the log is full, every new event
+ * overwrites the oldest one.
+ *
+ * As a listener of a game, the log keeps the events that are shown to the players only.
+ */
+public class GameLog implements GameListener {
+
+  private long count; // the number of events ever added
+  private long start; // the number of events added before the log was last cleared
+  private final long[] events;
+  private long version; // changes whenever events are added or cleared, see getVersion()
+
+  /**
+   * Creates an empty log that keeps the given number of most recent events.
+   *
+   * @param capacity the maximum number of events kept
+   */
+  public GameLog(int capacity) {
+
+    this.events = new long[capacity];
+
+  }
+
+  /**
+   * Adds the event to the log if it is shown to the players (see GameEvent.isShown()).
+   *
+   * @param event the event
+   */
+  @Override
+  public void onEvent(long event) {
+
+    if (GameEvent.isShown(event)) {
+      add(event);
+    }
+
+  }
+
+  /**
+   * Removes every event from the log. The count of events ever added is kept, and the version
+   * changes.
+   */
+  public void clear() {
+
+    start = count;
+    version++;
+
+  }
+
+  public void add(long event) {
+
+    events[(int) (count % events.length)] = event;
+    count++;
+    version++;
+
+  }
+
+  /**
+   * Returns one of the events kept in the log.
+   *
+   * @param index the index of the event, from 0 for the oldest event kept to size() - 1 for the
+   *              most recent one
+   * @return the event
+   */
+  public long get(int index) {
+
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size());
+    }
+    return events[(int) ((count - size() + index) % events.length)];
+
+  }
+
+  /**
+   * Returns the number of events added since the log was created, which changes whenever an event
+   * is added.
+   *
+   * @return the number of events ever added
+   */
+  public long getCount() {
+
+    return count;
+
+  }
+
+  /**
+   * Returns a number that changes whenever events are added or the log is cleared, so that a view
+   * of the log knows when to redraw it.
+   *
+   * @return the version of the log
+   */
+  public long getVersion() {
+
+    return version;
+
+  }
+
+  /**
+   * Returns the number of events kept in the log.
+   *
+   * @return the number of events that can be read with get()
+   */
+  public int size() {
+
+    return (int) Math.min(count - start, events.length);
+
+  }
+
+}
@@ -4,16 +4,54 @@ import java.io.File;
 
 public class Hand extends Deck {
 
-  private final int HAND_SIZE = 4;
+  private static final int HAND_SIZE = 4;
+
+  private int faceUp; // one bit per card position, set if that card is face-up
 
   public Hand() {
-    super(new ArrayList<>());
+    this(HAND_SIZE);
 
   }
 
-  public void addCard(BaseCard card) {
+  /**
+   * Creates an empty hand that holds the given number of cards.
+   *
+   * @param handSize the number of cards in a full hand
+   */
+  public Hand(int handSize) {
+    super(handSize);
+
+  }
+
+  public Hand(Hand other) {
+    super(other);
+    this.faceUp = other.faceUp;
+
+  }
+
+  /**
+   * Replaces the cards of this hand, and which of them are face-up, with those of another hand.
+   *
+   * @param other the hand to copy
+   */
+  public void copyFrom(Hand other) {
+    super.copyFrom(other);
+    this.faceUp = other.faceUp;
+
+  }
 
-    if (this.size() < HAND_SIZE) {
+  /**
+   * Removes every card from the hand, for a new round.
+   */
+  public void clear() {
+    super.clear();
+    this.faceUp = 0;
+
+  }
+
+  public void addCard(int card) {
+
+    if (this.size() < this.cardList.length) {
       super.addCard(card);
     } else {
       throw new IllegalStateException("The player cannot be dealt more cards");
@@ -21,67 +59,77 @@ public class Hand extends Deck {
 
   }
 
-  public int calcHand() {
-
-    int total = 0;
-
-    for (int i = 0; i < 4; i++) {
-      total += this.cardList.get(i).getRank();
-    }
+  public void draw(int y) {
 
-    return total;
+    draw(processing.g, y);
 
   }
 
-  public void draw(int y) {
+  public void draw(PGraphics g, int y) {
 
-    for (int i = 0; i < 4; i++) {
-      this.cardList.get(i).draw((50 + (60 * i)), y);
+    for (int i = 0; i < size; i++) {
+      BaseCard card = BaseCard.forCard(this.cardList[i]);
+      card.setFaceUp(isFaceUp(i));
+      card.draw(g, cardX(i), y);
     }
 
   }
 
-  public int getRankAtIndex(int index) {
+  /**
+   * Returns where a card of a hand is drawn.
+   *
+   * @param index the index of the card in the hand
+   * @return the x-coordinate of the top-left corner of the card
+   */
+  public static int cardX(int index) {
+    return 50 + (60 * index);
+  }
+
+  public boolean isFaceUp(int index) {
 
-    return this.cardList.get(index).getRank();
+    return (faceUp & (1 << index)) != 0;
 
   }
 
-  public int indexOfMouseOver() {
+  public void setFaceUp(int index, boolean faceUp) {
+
+    int mask = faceUp ? this.faceUp | (1 << index) : this.faceUp & ~(1 << index);
+    if (mask != this.faceUp) {
+      this.faceUp = mask;
+      version++;
+    }
 
-    for (int i = 0; i < 4; i++) {
+  }
 
-      if (this.cardList.get(i).isMouseOver()) {
-        return i;
-      }
+  /**
+   * Turns every card in the hand face-down.
+   */
+  public void hideAll() {
 
+    if (this.faceUp != 0) {
+      this.faceUp = 0;
+      version++;
     }
 
-    return -1;
-
   }
-  
-  public void setFaceUp(int index, boolean faceUp) {
-    
-    this.cardList.get(index).setFaceUp(faceUp);
-    
-  }
-  
-  public BaseCard swap(BaseCard newCard, int index) {
-    
-    BaseCard oldCard = super.cardList.get(index);
-    this.cardList.set(index, newCard);
+
+  public int swap(int newCard, int index) {
+
+    int oldCard = this.cardList[index];
+    this.cardList[index] = newCard;
+    version++;
     return oldCard;
-    
+
   }
-  
+
   public void switchCards(int myIndex, Hand otherHand, int otherIndex) {
-    
-    BaseCard myCard = this.cardList.get(myIndex);
-    BaseCard otherCard = otherHand.cardList.get(otherIndex);
-    this.cardList.set(myIndex, otherCard);
-    otherHand.cardList.set(otherIndex, myCard);
-    
+
+    int myCard = this.cardList[myIndex];
+    this.cardList[myIndex] = otherHand.cardList[otherIndex];
+    otherHand.cardList[otherIndex] = myCard;
+    version++;
+    otherHand.version++;
+
   }
 
 }
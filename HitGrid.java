@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+/**
+ * The HitGrid class finds what is under the mouse without asking every button and card. Targets
+ * are rectangles, each with an int id, added in drawing order so that a later target covers an
+ * earlier one where they overlap. The window is cut into square cells, and every cell lists the
+ * targets that touch it, so a lookup only checks the few targets of one cell, however many targets
+ * there are.
+ *
+ * The index is rebuilt on the first lookup after targets change, so moving targets, such as
+ * animated cards, can be cleared and added again every frame. The grid doesn't depend on
+ * Processing and works headlessly. A lookup never allocates.
+ */
+public class HitGrid {
+
+  public static final int NONE = -1;
+
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+
+  // the targets, in the order they were added
+  private int count;
+  private int[] heights = new int[16];
+  private int[] ids = new int[16];
+  private int[] widths = new int[16];
+  private int[] xs = new int[16];
+  private int[] ys = new int[16];
+
+  // the index: the targets of cell c are cellTargets[cellStarts[c]] to cellTargets[cellStarts[c+1]]
+  private final int[] cellStarts;
+  private int[] cellTargets = new int[16];
+  private boolean stale = true;
+
+  /**
+   * Creates an empty grid over a window.
+   *
+   * @param width    the width of the window
+   * @param height   the height of the window
+   * @param cellSize the size of a cell, about the size of the smallest target
+   */
+  public HitGrid(int width, int height, int cellSize) {
+
+    this.cellSize = cellSize;
+    this.columns = Math.max(1, (width + cellSize - 1) / cellSize);
+    this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+    this.cellStarts = new int[columns * rows + 1];
+
+  }
+
+  /**
+   * Removes every target.
+   */
+  public void clear() {
+
+    count = 0;
+    stale = true;
+
+  }
+
+  /**
+   * Adds a target on top of the targets added before it. A target covers its edges, like the mouse
+   * test of Button: the points from (x, y) to (x + width, y + height) inclusive.
+   *
+   * @param id     the id of the target, returned by find(); not NONE
+   * @param x      the x-coordinate of the top-left corner of the target
+   * @param y      the y-coordinate of the top-left corner of the target
+   * @param width  the width of the target
+   * @param height the height of the target
+   */
+  public void add(int id, int x, int y, int width, int height) {
+
+    if (count == ids.length) {
+      int capacity = 2 * count;
+      ids = Arrays.copyOf(ids, capacity);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      widths = Arrays.copyOf(widths, capacity);
+      heights = Arrays.copyOf(heights, capacity);
+    }
+    ids[count] = id;
+    xs[count] = x;
+    ys[count] = y;
+    widths[count] = width;
+    heights[count] = height;
+    count++;
+    stale = true;
+
+  }
+
+  /**
+   * Returns the topmost target at a point.
+   *
+   * @param x the x-coordinate of the point, such as mouseX
+   * @param y the y-coordinate of the point, such as mouseY
+   * @return the id of the target, or NONE if there is no target at the point
+   */
+  public int find(int x, int y) {
+
+    if (x < 0 || y < 0 || x >= columns * cellSize || y >= rows * cellSize) {
+      return NONE;
+    }
+    if (stale) {
+      build();
+    }
+
+    // the targets of a cell are in drawing order, so the topmost is found first from the end
+    int cell = (y / cellSize) * columns + x / cellSize;
+    for (int k = cellStarts[cell + 1] - 1; k >= cellStarts[cell]; k--) {
+      int t = cellTargets[k];
+      if (x >= xs[t] && x <= xs[t] + widths[t] && y >= ys[t] && y <= ys[t] + heights[t]) {
+        return ids[t];
+      }
+    }
+    return NONE;
+
+  }
+
+  /**
+   * Rebuilds the index in two passes over the targets: one counts the targets of every cell, and
+   * the other puts them in place.
+   */
+  private void build() {
+
+    Arrays.fill(cellStarts, 0);
+    for (int t = 0; t < count; t++) {
+      for (int row = firstRow(t); row <= lastRow(t); row++) {
+        for (int column = firstColumn(t); column <= lastColumn(t); column++) {
+          cellStarts[row * columns + column + 1]++;
+        }
+      }
+    }
+    for (int c = 0; c < columns * rows; c++) {
+      cellStarts[c + 1] += cellStarts[c];
+    }
+    if (cellTargets.length < cellStarts[columns * rows]) {
+      cellTargets = new int[cellStarts[columns * rows]];
+    }
+
+    // fill every cell from its start, shifting the starts along, and then shift them back
+    for (int t = 0; t < count; t++) {
+      for (int row = firstRow(t); row <= lastRow(t); row++) {
+        for (int column = firstColumn(t); column <= lastColumn(t); column++) {
+          cellTargets[cellStarts[row * columns + column]++] = t;
+        }
+      }
+    }
+    for (int c = columns * rows; c > 0; c--) {
+      cellStarts[c] = cellStarts[c - 1];
+    }
+    cellStarts[0] = 0;
+    stale = false;
+
+  }
+
+  private int firstColumn(int t) {
+    return Math.max(0, xs[t] / cellSize);
+  }
+
+  private int lastColumn(int t) {
+    return Math.min(columns - 1, (xs[t] + widths[t]) / cellSize);
+  }
+
+  private int firstRow(int t) {
+    return Math.max(0, ys[t] / cellSize);
+  }
+
+  private int lastRow(int t) {
+    return Math.min(rows - 1, (ys[t] + heights[t]) / cellSize);
+  }
+
+  /**
+   * Returns the number of targets.
+   *
+   * @return the number of targets added since the grid was last cleared
+   */
+  public int size() {
+    return count;
+  }
+
+}
@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations in power-of-two buckets of nanoseconds: bucket i
+ * holds the durations from 2^(i-1) up to 2^i - 1 nanoseconds. Recording a duration is lock-free
+ * and does not allocate, so any number of threads can record into one histogram all the time;
+ * reading it is approximate while durations are being recorded.
+ *
+ * Percentiles are rounded up to the top of their bucket, so they are at most twice the true value.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 40; // the last bucket holds everything from 2^38 ns, 4.6 min
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+  private final LongAdder total = new LongAdder();
+
+  /**
+   * The Summary class is a snapshot of a histogram, in microseconds, as shown over JMX.
+   */
+  public static final class Summary {
+
+    private final long count;
+    private final double max;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+
+    private Summary(long count, double mean, double p50, double p90, double p99, double max) {
+
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.max = max;
+
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMeanMicros() {
+      return mean;
+    }
+
+    public double getP50Micros() {
+      return p50;
+    }
+
+    public double getP90Micros() {
+      return p90;
+    }
+
+    public double getP99Micros() {
+      return p99;
+    }
+
+    public double getMaxMicros() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d, mean %.1f us, p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us",
+          count, mean, p50, p90, p99, max);
+    }
+
+  }
+
+  /**
+   * Creates an empty histogram.
+   */
+  public LatencyHistogram() {
+
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+
+  }
+
+  /**
+   * Counts a duration.
+   *
+   * @param nanos the duration, in nanoseconds; negative durations count as 0
+   */
+  public void record(long nanos) {
+
+    nanos = Math.max(0, nanos);
+    buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+    total.add(nanos);
+    max.accumulate(nanos);
+
+  }
+
+  /**
+   * Counts the time since the given start.
+   *
+   * @param start the start, from System.nanoTime()
+   */
+  public void recordSince(long start) {
+    record(System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the number of durations counted.
+   *
+   * @return the number of durations
+   */
+  public long getCount() {
+
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+
+  }
+
+  /**
+   * Returns the duration below which the given fraction of the durations lie, rounded up to the
+   * top of its bucket and capped at the longest duration.
+   *
+   * @param fraction the fraction, between 0 and 1
+   * @return the duration, in nanoseconds, or 0 if nothing has been counted
+   */
+  public long getPercentile(double fraction) {
+
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      count += counts[i];
+    }
+
+    long rank = (long) Math.ceil(fraction * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && seen > 0) {
+        return Math.min((1L << i) - 1, max.get());
+      }
+    }
+    return max.get();
+
+  }
+
+  /**
+   * Returns a snapshot of the histogram.
+   *
+   * @return the count, mean, median, 90th and 99th percentiles and the longest duration
+   */
+  public Summary getSummary() {
+
+    long count = getCount();
+    return new Summary(count, count == 0 ? 0 : total.sum() / 1e3 / count,
+        getPercentile(0.5) / 1e3, getPercentile(0.9) / 1e3, getPercentile(0.99) / 1e3,
+        max.get() / 1e3);
+
+  }
+
+}
@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The MctsAIPlayer class is an AI player that decides by determinized Monte Carlo tree search
+ * over its information set. For every decision it samples many games that are consistent with its
+ * card knowledge (see {@link CaboEngine#determinize(AIPlayer, SplittableRandom)}), tries the
+ * candidate moves in them with UCB1 selection, and plays each sample to the end with the default
+ * AIPlayer strategy for everyone. The move that was explored the most wins.
+ *
+ * The candidate moves are every way of using the drawn card (discard, swap into any slot, and the
+ * peek, spy or switch targets of an action card), each with and without declaring CABO at the end
+ * of the turn. The search runs on several threads in parallel (root parallelization) until either
+ * its time budget or its rollout budget is used up. Once someone has declared CABO, an
+ * EndgameSolver decides instead, which is both more precise and much faster in the last round.
+ */
+public class MctsAIPlayer extends AIPlayer {
+
+  private static final double EXPLORATION = Math.sqrt(2);
+
+  private final long timeBudgetNanos;
+  private final int rolloutBudget;
+  private final int threads;
+  private boolean declareCabo; // the CABO decision that goes with the last move chosen
+
+  /**
+   * Constructs a search-based AI player for the standard rules, which thinks for up to 200
+   * milliseconds per move on every available core.
+   *
+   * @param name       the name of the player.
+   * @param label      the player's label, which uniquely identifies them in the game.
+   * @param isComputer true if the player is a computer-controlled AI, false otherwise.
+   */
+  public MctsAIPlayer(String name, int label, boolean isComputer) {
+    this(name, label, isComputer, Ruleset.STANDARD, 200, Integer.MAX_VALUE,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a search-based AI player.
+   *
+   * @param name          the name of the player.
+   * @param label         the player's label, which uniquely identifies them in the game.
+   * @param isComputer    true if the player is a computer-controlled AI, false otherwise.
+   * @param rules         the rules of the game.
+   * @param timeBudget    the maximum time to think about a move, in milliseconds.
+   * @param rolloutBudget the maximum number of games to simulate per move, over all threads.
+   * @param threads       the number of threads to search on.
+   */
+  public MctsAIPlayer(String name, int label, boolean isComputer, Ruleset rules, long timeBudget,
+      int rolloutBudget, int threads) {
+    super(name, label, isComputer, rules);
+    this.timeBudgetNanos = timeBudget * 1_000_000;
+    this.rolloutBudget = rolloutBudget;
+    this.threads = Math.max(1, threads);
+    setEndgameSolver(new EndgameSolver(rules));
+  }
+
+  /**
+   * Creates a copy of another search-based AI player, with the same budgets and solver, and the
+   * CABO decision that goes with its last move.
+   */
+  private MctsAIPlayer(MctsAIPlayer other) {
+    super(other);
+    this.timeBudgetNanos = other.timeBudgetNanos;
+    this.rolloutBudget = other.rolloutBudget;
+    this.threads = other.threads;
+    this.declareCabo = other.declareCabo;
+    setEndgameSolver(other.getEndgameSolver());
+  }
+
+  @Override
+  public AIPlayer copy() {
+    return new MctsAIPlayer(this);
+  }
+
+  /**
+   * Searches for the best way to use the drawn card, and remembers whether CABO should be declared
+   * after it.
+   *
+   * @param engine the game, with the card drawn by this player.
+   * @return the move to make with the drawn card, as encoded by Moves.
+   */
+  @Override
+  public int decideMove(CaboEngine engine) {
+    if (engine.getCaboPlayer() != -1) {
+      declareCabo = false;
+      return super.decideMove(engine);
+    }
+
+    int[] moves = candidateMoves(engine);
+    boolean caboAllowed = engine.getCaboPlayer() == -1;
+    int arms = caboAllowed ? 2 * moves.length : moves.length;
+
+    long deadline = System.nanoTime() + timeBudgetNanos;
+    SplittableRandom random = engine.getRandom();
+
+    // root parallelization: every thread searches its own statistics, which are added up at the end
+    long[] visits = new long[arms];
+    double[] rewards = new double[arms];
+    if (threads == 1) {
+      search(engine, moves, arms, deadline, rolloutBudget, random.split(), visits, rewards);
+    } else {
+      List<Future<?>> workers = new ArrayList<>();
+      long[][] workerVisits = new long[threads][arms];
+      double[][] workerRewards = new double[threads][arms];
+      for (int t = 0; t < threads; t++) {
+        int worker = t;
+        SplittableRandom workerRandom = random.split();
+        int workerBudget = rolloutBudget / threads + (t < rolloutBudget % threads ? 1 : 0);
+        workers.add(ForkJoinPool.commonPool().submit(() -> search(engine, moves, arms, deadline,
+            workerBudget, workerRandom, workerVisits[worker], workerRewards[worker])));
+      }
+      for (int t = 0; t < threads; t++) {
+        try {
+          workers.get(t).get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("Search failed", e.getCause());
+        }
+        for (int arm = 0; arm < arms; arm++) {
+          visits[arm] += workerVisits[t][arm];
+          rewards[arm] += workerRewards[t][arm];
+        }
+      }
+    }
+
+    // the most explored arm is the most robust choice
+    int best = 0;
+    for (int arm = 1; arm < arms; arm++) {
+      if (visits[arm] > visits[best]
+          || (visits[arm] == visits[best] && rewards[arm] > rewards[best])) {
+        best = arm;
+      }
+    }
+
+    declareCabo = best >= moves.length;
+    return moves[best % moves.length];
+  }
+
+  /**
+   * Declares CABO if the search found that the best move is followed by declaring CABO.
+   *
+   * @param engine the game, after this player has used its drawn card.
+   * @return true to declare CABO, false to simply end the turn.
+   */
+  @Override
+  public boolean decideCabo(CaboEngine engine) {
+    return declareCabo;
+  }
+
+  /**
+   * Runs simulations until the deadline or the rollout budget, accumulating the visits and rewards
+   * of every arm. An arm is a candidate move, optionally followed by declaring CABO (arms from
+   * {@code moves.length} on).
+   */
+  private void search(CaboEngine engine, int[] moves, int arms, long deadline, int budget,
+      SplittableRandom random, long[] visits, double[] rewards) {
+    long total = 0;
+    while (total < budget && (total < arms || System.nanoTime() < deadline)) {
+      int arm = select(arms, total, visits, rewards);
+      rewards[arm] += rollout(engine, moves[arm % moves.length], arm >= moves.length, random);
+      visits[arm]++;
+      total++;
+    }
+  }
+
+  private static int select(int arms, long total, long[] visits, double[] rewards) {
+    int best = 0;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    double logTotal = Math.log(total + 1);
+    for (int arm = 0; arm < arms; arm++) {
+      if (visits[arm] == 0) {
+        return arm;
+      }
+      double value = rewards[arm] / visits[arm] + EXPLORATION * Math.sqrt(logTotal / visits[arm]);
+      if (value > bestValue) {
+        bestValue = value;
+        best = arm;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Plays one sampled game to the end after making the given move.
+   *
+   * @return 1 if this player wins, 1/n if it ties for the lowest score with n players, 0 otherwise
+   */
+  private double rollout(CaboEngine engine, int move, boolean cabo, SplittableRandom random) {
+    CaboEngine game = engine.copy(random.split());
+    game.determinize(this, random);
+
+    game.applyMove(move);
+    if (cabo) {
+      game.declareCabo();
+    } else {
+      game.nextTurn();
+    }
+    while (!game.isGameOver()) {
+      game.performAITurn();
+    }
+
+    int lowest = Integer.MAX_VALUE;
+    int winners = 0;
+    for (int i = 0; i < game.getPlayers().length; i++) {
+      int score = game.getScore(i);
+      if (score < lowest) {
+        lowest = score;
+        winners = 1;
+      } else if (score == lowest) {
+        winners++;
+      }
+    }
+    return game.getScore(engine.getCurrentPlayer()) == lowest ? 1.0 / winners : 0.0;
+  }
+
+  /**
+   * Lists every way of using the drawn card.
+   */
+  private int[] candidateMoves(CaboEngine engine) {
+    int drawnCard = engine.getDrawnCard();
+    Player[] players = engine.getPlayers();
+    int seat = engine.getCurrentPlayer();
+    int handSize = getHand().size();
+
+    int[] moves = new int[1 + handSize + handSize * handSize * players.length];
+    int count = 0;
+    moves[count++] = Moves.discard();
+    for (int i = 0; i < handSize; i++) {
+      moves[count++] = Moves.swap(i);
+    }
+
+    switch (getRules().action(drawnCard)) {
+      case Cards.ACTION_PEEK -> {
+        for (int i = 0; i < handSize; i++) {
+          if (!getCardKnowledge(getLabel(), i)) {
+            moves[count++] = Moves.peek(i);
+          }
+        }
+      }
+      case Cards.ACTION_SPY -> {
+        for (int other = 0; other < players.length; other++) {
+          int index = getSpyIndex(players[other].getLabel());
+          if (other != seat && index != -1) {
+            moves[count++] = Moves.spy(other, index);
+          }
+        }
+      }
+      case Cards.ACTION_SWITCH -> {
+        for (int i = 0; i < handSize; i++) {
+          for (int other = 0; other < players.length; other++) {
+            for (int j = 0; other != seat && j < players[other].getHand().size(); j++) {
+              moves[count++] = Moves.switchCards(i, other, j);
+            }
+          }
+        }
+      }
+      default -> {
+        /* Not an action card */ }
+    }
+
+    return Arrays.copyOf(moves, count);
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * The Moves class defines the compact encoding of the commands a player can give the engine: draw
+ * a card, use the drawn card (discard, swap, peek, spy or switch), declare CABO and end the turn. A
+ * move is a single int, so AIs can produce and compare them without allocating.
+ *
+ * Packed layout: bits 0-3 type, bits 4-9 slot in the current player's hand, bits 10-15 seat of the
+ * other player, bits 16-21 slot in the other player's hand.
+ */
+public final class Moves {
+
+  public static final int DRAW = 0;
+  public static final int DISCARD = 1;
+  public static final int SWAP = 2;
+  public static final int PEEK = 3;
+  public static final int SPY = 4;
+  public static final int SWITCH = 5;
+  public static final int CABO = 6;
+  public static final int END_TURN = 7;
+
+  private static final String[] NAMES =
+      {"draw", "discard", "swap", "peek", "spy", "switch", "cabo", "end turn"};
+
+  private Moves() {
+  }
+
+  public static int draw() {
+    return DRAW;
+  }
+
+  public static int discard() {
+    return DISCARD;
+  }
+
+  public static int swap(int slot) {
+    return SWAP | (slot << 4);
+  }
+
+  public static int peek(int slot) {
+    return PEEK | (slot << 4);
+  }
+
+  public static int spy(int seat, int slot) {
+    return SPY | (seat << 10) | (slot << 16);
+  }
+
+  public static int switchCards(int slot, int seat, int otherSlot) {
+    return SWITCH | (slot << 4) | (seat << 10) | (otherSlot << 16);
+  }
+
+  public static int cabo() {
+    return CABO;
+  }
+
+  public static int endTurn() {
+    return END_TURN;
+  }
+
+  public static int type(int move) {
+    return move & 0xF;
+  }
+
+  public static int slot(int move) {
+    return (move >> 4) & 0x3F;
+  }
+
+  public static int seat(int move) {
+    return (move >> 10) & 0x3F;
+  }
+
+  public static int otherSlot(int move) {
+    return (move >> 16) & 0x3F;
+  }
+
+  /**
+   * Returns whether the move uses the drawn card, as opposed to drawing, declaring CABO or ending
+   * the turn.
+   *
+   * @param move the move
+   * @return true if the move uses the drawn card
+   */
+  public static boolean usesDrawnCard(int move) {
+    int type = type(move);
+    return type >= DISCARD && type <= SWITCH;
+  }
+
+  public static String toString(int move) {
+    return switch (type(move)) {
+      case SWAP, PEEK -> NAMES[type(move)] + " " + slot(move);
+      case SPY -> NAMES[SPY] + " " + seat(move) + ":" + otherSlot(move);
+      case SWITCH -> NAMES[SWITCH] + " " + slot(move) + " " + seat(move) + ":" + otherSlot(move);
+      default -> type(move) < NAMES.length ? NAMES[type(move)] : "unknown move " + type(move);
+    };
+  }
+
+}
@@ -11,14 +11,42 @@ public class Player {
   
   public Player(String name, int label, boolean isComputer) {
     
+    this(name, label, isComputer, Ruleset.STANDARD.getHandSize());
+    
+  }
+
+  /**
+   * Creates a player whose hand holds the given number of cards.
+   *
+   * @param name       the name of the player
+   * @param label      the player's label, which uniquely identifies them in the game
+   * @param isComputer true if the player is computer-controlled
+   * @param handSize   the number of cards in a full hand
+   */
+  public Player(String name, int label, boolean isComputer, int handSize) {
+
     this.label = label;
     this.name = name;
     this.isComputer = isComputer;
-    this.hand = new Hand();
-    
+    this.hand = new Hand(handSize);
+
   }
   
-  public void addCardToHand(BaseCard card) {
+  /**
+   * Creates a copy of another player, with a copy of their hand.
+   *
+   * @param other the player to copy
+   */
+  public Player(Player other) {
+
+    this.label = other.label;
+    this.name = other.name;
+    this.isComputer = other.isComputer;
+    this.hand = new Hand(other.hand);
+
+  }
+
+  public void addCardToHand(int card) {
     hand.addCard(card);
   }
   
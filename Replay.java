@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The Replay class records a game as its seed and the moves made in it (see Moves), and plays it
+ * back: a game created from the seed deals the same cards, and applying the same moves reproduces
+ * every turn exactly, whether a human or an AI made them. A replay records a game as a listener of
+ * its events.
+ *
+ * To seek, the replay keeps a snapshot of the game (see CaboEngine.saveState()) at the start of
+ * every SNAPSHOT_INTERVAL-th turn, so going to any turn restores the closest earlier snapshot and
+ * replays at most SNAPSHOT_INTERVAL turns, however long the game. Snapshots are taken the first
+ * time playback passes them, and take a few hundred bytes each. Saving a replay takes every
+ * snapshot and writes them to the file, so a loaded replay seeks to any turn at once.
+ *
+ * A replay file holds the 8-byte magic number "CABORPL2", the number of players, the hand size,
+ * the number of decks, the seed, the number of moves, the size of a snapshot and the number of
+ * snapshots, followed by the moves and then the snapshots, all little-endian. Files of the first
+ * format, with the magic number "CABORPLY" and without decks or snapshots, can still be loaded;
+ * their snapshots are taken during playback.
+ */
+public class Replay implements GameListener {
+
+  public static final long MAGIC = 0x324C50524F424143L; // "CABORPL2" in little-endian order
+  public static final int SNAPSHOT_INTERVAL = 4;
+
+  // the first format: magic, players, hand size, seed and move count, then the moves
+  private static final long MAGIC_V1 = 0x594C50524F424143L; // "CABORPLY" in little-endian order
+  private static final int HEADER_SIZE_V1 = 28;
+  // magic, players, hand size, decks, seed, move count, snapshot size and snapshot count
+  private static final int HEADER_SIZE = 40;
+
+  private int handSize;
+  private int moveCount;
+  private int[] moves = new int[64];
+  private int numDecks; // 0 until a game is created or saved by known rules
+  private int numPlayers;
+  private long seed;
+  private int snapshotCount;
+  private ByteBuffer snapshots; // the saved states of the game, one every SNAPSHOT_INTERVAL turns
+  private int stateSize;
+  private int turnCount; // the number of turn starts, see turnStarts
+  private int[] turnStarts = new int[16]; // the index of the first move of every turn
+
+  // the state of the recording, to tell which events are moves
+  private boolean ignoreTurn;
+
+  /**
+   * Creates an empty replay, to record a game created from the given seed.
+   *
+   * @param seed the seed of the game's SplittableRandom
+   */
+  public Replay(long seed) {
+
+    this.seed = seed;
+    this.turnCount = 1;
+
+  }
+
+  /**
+   * Starts recording another game, created from the given seed, such as the next round at the same
+   * table. The moves recorded so far are dropped; the replay keeps its buffers.
+   *
+   * @param seed the seed of the new game's SplittableRandom
+   */
+  public void reset(long seed) {
+
+    this.seed = seed;
+    this.moveCount = 0;
+    this.turnCount = 1;
+    this.snapshots = null;
+    this.snapshotCount = 0;
+
+  }
+
+  /**
+   * Records the move behind an event of the game. The start of a game resets the replay.
+   *
+   * @param event the event, as encoded by GameEvent
+   */
+  @Override
+  public void onEvent(long event) {
+
+    switch (GameEvent.type(event)) {
+      case GameEvent.GAME_START -> {
+        numPlayers = GameEvent.seat(event);
+        handSize = GameEvent.slot(event);
+        moveCount = 0;
+        turnCount = 1;
+        snapshots = null;
+        snapshotCount = 0;
+        ignoreTurn = true; // the first turn starts without a move
+      }
+      case GameEvent.TURN -> {
+        // declaring CABO ends the turn by itself
+        if (!ignoreTurn) {
+          addMove(Moves.endTurn());
+        }
+        ignoreTurn = false;
+      }
+      case GameEvent.DRAW -> addMove(Moves.draw());
+      case GameEvent.DISCARD -> addMove(Moves.discard());
+      case GameEvent.SWAP -> addMove(Moves.swap(GameEvent.slot(event)));
+      case GameEvent.PEEK -> addMove(Moves.peek(GameEvent.slot(event)));
+      case GameEvent.SPY -> addMove(Moves.spy(GameEvent.seat(event), GameEvent.otherSlot(event)));
+      case GameEvent.SWITCH -> addMove(Moves.switchCards(GameEvent.slot(event),
+          GameEvent.seat(event), GameEvent.otherSlot(event)));
+      case GameEvent.CABO -> {
+        addMove(Moves.cabo());
+        ignoreTurn = true;
+      }
+      case GameEvent.GAME_OVER -> {
+        // a draw from an empty deck ends the game without a DRAW event
+        if (GameEvent.isDeckOut(event)) {
+          addMove(Moves.draw());
+        }
+      }
+      default -> {
+        /* not a move */ }
+    }
+
+  }
+
+  private void addMove(int move) {
+
+    if (moveCount == moves.length) {
+      moves = Arrays.copyOf(moves, 2 * moveCount);
+    }
+    moves[moveCount++] = move;
+
+    if (Moves.type(move) == Moves.END_TURN || Moves.type(move) == Moves.CABO) {
+      if (turnCount == turnStarts.length) {
+        turnStarts = Arrays.copyOf(turnStarts, 2 * turnCount);
+      }
+      turnStarts[turnCount++] = moveCount;
+    }
+
+  }
+
+  /**
+   * Creates the recorded game at its start, with the deal, for playback with seek(). The snapshots
+   * of a loaded replay are kept.
+   *
+   * @param players   the players at the table, in turn order
+   * @param rules     the rules the game was played by
+   * @param listeners the listeners of the game's events, including those of the played back moves
+   * @return the game
+   * @throws IllegalArgumentException if the rules are not for the recorded table
+   */
+  public CaboEngine newGame(Player[] players, Ruleset rules, GameListener... listeners) {
+
+    if (rules.getNumPlayers() != numPlayers || rules.getHandSize() != handSize
+        || (numDecks != 0 && rules.getNumDecks() != numDecks)) {
+      throw new IllegalArgumentException("The replay is of " + numPlayers + " players with "
+          + handSize + " cards each" + (numDecks != 0 ? " and " + numDecks + " deck(s)" : ""));
+    }
+    numDecks = rules.getNumDecks();
+
+    CaboEngine engine = new CaboEngine(players, rules, new SplittableRandom(seed), listeners);
+    if (snapshotCount == 0 || stateSize != CaboEngine.stateSize(rules)) {
+      stateSize = CaboEngine.stateSize(rules);
+      snapshots = ByteBuffer.allocate((getTurns() / SNAPSHOT_INTERVAL + 1) * stateSize);
+      engine.saveState(snapshot(0));
+      snapshotCount = 1;
+    }
+    return engine;
+
+  }
+
+  /**
+   * Puts a game created by newGame() at the start of the given turn. Turn 0 starts right after the
+   * deal; turn getTurns() is the end of the recording, which is the end of the game if it was
+   * played to the end.
+   *
+   * @param engine the game, as created by newGame()
+   * @param turn   the turn to go to, from 0 to getTurns()
+   * @throws IllegalStateException     if newGame() has not been called
+   * @throws IndexOutOfBoundsException if there is no such turn
+   */
+  public void seek(CaboEngine engine, int turn) {
+
+    if (snapshots == null) {
+      throw new IllegalStateException("No game has been created for the replay");
+    }
+    if (turn < 0 || turn > getTurns()) {
+      throw new IndexOutOfBoundsException("Turn " + turn + " out of bounds for " + getTurns());
+    }
+
+    int from = Math.min(turn / SNAPSHOT_INTERVAL, snapshotCount - 1) * SNAPSHOT_INTERVAL;
+    engine.restoreState(snapshot(from / SNAPSHOT_INTERVAL));
+
+    for (int t = from; t < turn; t++) {
+      int end = t + 1 < turnCount ? turnStarts[t + 1] : moveCount;
+      for (int i = turnStarts[t]; i < end; i++) {
+        engine.applyMove(moves[i]);
+      }
+
+      // remember the start of the next turn, if it is the first time playback gets there
+      int next = t + 1;
+      if (next % SNAPSHOT_INTERVAL == 0 && next / SNAPSHOT_INTERVAL == snapshotCount
+          && next <= getTurns()) {
+        if (snapshots.capacity() < (snapshotCount + 1) * stateSize) {
+          // the recording has grown since the game was created
+          snapshots = ByteBuffer.allocate(2 * snapshots.capacity()).put(snapshots.clear());
+        }
+        engine.saveState(snapshot(snapshotCount++));
+      }
+    }
+
+  }
+
+  private ByteBuffer snapshot(int index) {
+    return snapshots.slice(index * stateSize, stateSize);
+  }
+
+  /**
+   * Returns the number of turns in the recording, including a turn that was not finished, such as
+   * the one that ended the game on an empty deck.
+   *
+   * @return the last turn seek() can go to
+   */
+  public int getTurns() {
+    return turnCount - 1 + (turnStarts[turnCount - 1] < moveCount ? 1 : 0);
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Writes the replay to a file with every snapshot, replacing the file if it exists. The snapshots
+   * that playback has not taken yet are taken by playing the recording once, with an AIPlayer in
+   * every seat, so that they hold what every AI player would know.
+   *
+   * @param path  the path of the file
+   * @param rules the rules the game was played by
+   * @throws IOException              if the file cannot be written
+   * @throws IllegalArgumentException if the rules are not for the recorded table
+   */
+  public void save(Path path, Ruleset rules) throws IOException {
+
+    if (snapshotCount < getTurns() / SNAPSHOT_INTERVAL + 1) {
+      Player[] players = new Player[numPlayers];
+      for (int i = 0; i < players.length; i++) {
+        players[i] = new AIPlayer("Player " + (i + 1), i, true, rules);
+      }
+      seek(newGame(players, rules), getTurns());
+    }
+    if (numDecks != rules.getNumDecks()) {
+      throw new IllegalArgumentException("The replay is of " + numDecks + " deck(s)");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + moveCount * Integer.BYTES
+        + snapshotCount * stateSize).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putLong(MAGIC).putInt(numPlayers).putInt(handSize).putInt(numDecks).putLong(seed)
+        .putInt(moveCount).putInt(stateSize).putInt(snapshotCount);
+    for (int i = 0; i < moveCount; i++) {
+      buffer.putInt(moves[i]);
+    }
+    buffer.put(snapshots.slice(0, snapshotCount * stateSize));
+    Files.write(path, buffer.array());
+
+  }
+
+  /**
+   * Reads a replay from a file.
+   *
+   * @param path the path of the file
+   * @return the replay
+   * @throws IOException if the file cannot be read, or is not a replay
+   */
+  public static Replay load(Path path) throws IOException {
+
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    long magic = buffer.remaining() < HEADER_SIZE_V1 ? 0 : buffer.getLong();
+    if ((magic != MAGIC || buffer.remaining() < HEADER_SIZE - Long.BYTES) && magic != MAGIC_V1) {
+      throw new IOException(path + " is not a replay");
+    }
+    boolean v1 = magic == MAGIC_V1;
+    int numPlayers = buffer.getInt();
+    int handSize = buffer.getInt();
+    int numDecks = v1 ? 1 : buffer.getInt();
+    Replay replay = new Replay(buffer.getLong());
+    int moveCount = buffer.getInt();
+    int stateSize = v1 ? 0 : buffer.getInt();
+    int snapshotCount = v1 ? 0 : buffer.getInt();
+    if (moveCount < 0 || stateSize < 0 || snapshotCount < 0 || buffer.remaining()
+        != (long) moveCount * Integer.BYTES + (long) snapshotCount * stateSize) {
+      throw new IOException(path + " is not a replay");
+    }
+
+    replay.numPlayers = numPlayers;
+    replay.handSize = handSize;
+    replay.numDecks = numDecks;
+    for (int i = 0; i < moveCount; i++) {
+      replay.addMove(buffer.getInt());
+    }
+    if (snapshotCount > 0) {
+      if (snapshotCount > replay.getTurns() / SNAPSHOT_INTERVAL + 1) {
+        throw new IOException(path + " is not a replay");
+      }
+      replay.stateSize = stateSize;
+      replay.snapshotCount = snapshotCount;
+      replay.snapshots = ByteBuffer.allocate((replay.getTurns() / SNAPSHOT_INTERVAL + 1)
+          * stateSize).put(buffer);
+    }
+    return replay;
+
+  }
+
+  /**
+   * Prints the table at a turn of a recorded game, or at its end.
+   *
+   * @param args the replay file, optionally the turn and optionally a properties file with the
+   *             house rules the game was played by (see Ruleset)
+   * @throws IOException if a file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 1) {
+      System.err.println("Usage: java Replay <replay file> [turn] [rules file]");
+      System.exit(2);
+    }
+    Replay replay = load(Paths.get(args[0]));
+    int turn = args.length > 1 ? Integer.parseInt(args[1]) : replay.getTurns();
+    Ruleset rules = args.length > 2 ? Ruleset.load(args[2]) : Ruleset.STANDARD;
+
+    Player[] players = new Player[rules.getNumPlayers()];
+    for (int i = 0; i < players.length; i++) {
+      players[i] = new Player("Player " + (i + 1), i, false, rules.getHandSize());
+    }
+    CaboEngine engine = replay.newGame(players, rules);
+    replay.seek(engine, turn);
+
+    System.out.println("Seed: " + replay.getSeed() + ", turn " + turn + " of "
+        + replay.getTurns());
+    for (int i = 0; i < players.length; i++) {
+      Hand hand = players[i].getHand();
+      StringBuilder cards = new StringBuilder();
+      for (int j = 0; j < hand.size(); j++) {
+        cards.append(j == 0 ? "" : ", ").append(Cards.toString(hand.getCard(j)));
+      }
+      System.out.println((i == engine.getCurrentPlayer() ? "> " : "  ") + players[i].getName()
+          + (i == engine.getCaboPlayer() ? " (CABO)" : "") + ": " + cards + " = "
+          + engine.getScore(i));
+    }
+    Deck discard = engine.getDiscard();
+    System.out.println("Deck: " + engine.getDeck().size() + " cards, discard pile: "
+        + (discard.isEmpty() ? "empty" : Cards.toString(discard.getCard(discard.size() - 1))));
+    if (engine.isGameOver()) {
+      System.out.println(GameEvent.toString(GameEvent.gameOver(engine.getWinner(), false), players));
+    }
+
+  }
+
+}
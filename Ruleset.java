@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The Ruleset class holds the rules of a game of CABO that vary between house rules: the score and
+ * action of every card, the number of players, the number of cards in a hand and the number of
+ * decks shuffled together (see Cards). The rules are
+ * compiled into flat tables indexed by card id when the ruleset is created, so every check during
+ * play is an array read.
+ *
+ * A ruleset is read from properties; every key is optional and defaults to the standard rules:
+ *
+ * <pre>
+ * players = 4
+ * handSize = 4
+ * decks = 1
+ * # score of every card of a rank, or of a single card (in every deck)
+ * score.1 = 0
+ * score.13.diamonds = -1
+ * # action of every card of a rank, or of a single card: none, peek, spy or switch
+ * action.13 = spy
+ * action.7.hearts = none
+ * </pre>
+ */
+public final class Ruleset {
+
+  private static final String[] SUIT_KEYS = {"clubs", "diamonds", "hearts", "spades"};
+  private static final String[] ACTION_KEYS = {"none", "peek", "spy", "switch"};
+
+  /**
+   * The standard rules, as encoded in Cards.
+   */
+  public static final Ruleset STANDARD = new Ruleset(new Properties());
+
+  private final byte[] actions;
+  private final int deckSize;
+  private final int handSize;
+  private final int numPlayers;
+  private final int[] scores;
+
+  /**
+   * Compiles a ruleset from properties, using the standard rules for every missing key.
+   *
+   * @param properties the rules, in the format described above
+   * @throws IllegalArgumentException if a value is invalid, the table doesn't fit the deck or the
+   *                                  AI players' card knowledge, or a hand can score more than a
+   *                                  SCORE event holds (see GameEvent)
+   */
+  public Ruleset(Properties properties) {
+
+    this.numPlayers = parseInt(properties, "players", 4);
+    this.handSize = parseInt(properties, "handSize", 4);
+    int decks = parseInt(properties, "decks", 1);
+    if (decks < 1 || decks > Cards.MAX_DECKS) {
+      throw new IllegalArgumentException("Unsupported number of decks: " + decks);
+    }
+    this.deckSize = decks * Cards.DECK_SIZE;
+    if (numPlayers < 2 || handSize < 2 || numPlayers * handSize > Long.SIZE
+        || numPlayers * handSize >= deckSize) {
+      throw new IllegalArgumentException("Unsupported table of " + numPlayers + " players with "
+          + handSize + " cards each and " + decks + " deck(s)");
+    }
+
+    this.scores = new int[deckSize];
+    this.actions = new byte[deckSize];
+    for (int card = 0; card < Cards.DECK_SIZE; card++) {
+      String rankKey = "." + Cards.rank(card);
+      String cardKey = rankKey + "." + SUIT_KEYS[Cards.suit(card)];
+
+      scores[card] = parseInt(properties, "score" + cardKey,
+          parseInt(properties, "score" + rankKey, Cards.score(card)));
+      actions[card] = (byte) parseAction(properties, "action" + cardKey,
+          parseAction(properties, "action" + rankKey, Cards.action(card)));
+    }
+    for (int card = Cards.DECK_SIZE; card < deckSize; card++) {
+      scores[card] = scores[card % Cards.DECK_SIZE];
+      actions[card] = actions[card % Cards.DECK_SIZE];
+    }
+
+    long lowest = 0;
+    long highest = 0;
+    for (int card = 0; card < Cards.DECK_SIZE; card++) {
+      lowest = Math.min(lowest, scores[card]);
+      highest = Math.max(highest, scores[card]);
+    }
+    if (lowest * handSize < Short.MIN_VALUE || highest * handSize > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Card scores from " + lowest + " to " + highest
+          + " are out of range for hands of " + handSize + " cards");
+    }
+
+  }
+
+  /**
+   * Reads a ruleset from a properties file.
+   *
+   * @param path the path of the file
+   * @return the compiled ruleset
+   * @throws IOException if the file cannot be read
+   */
+  public static Ruleset load(String path) throws IOException {
+
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(Paths.get(path))) {
+      properties.load(reader);
+    }
+    return new Ruleset(properties);
+
+  }
+
+  private static int parseInt(Properties properties, String key, int defaultValue) {
+
+    String value = properties.getProperty(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+    }
+
+  }
+
+  private static int parseAction(Properties properties, String key, int defaultValue) {
+
+    String value = properties.getProperty(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    for (int action = 0; action < ACTION_KEYS.length; action++) {
+      if (ACTION_KEYS[action].equalsIgnoreCase(value.trim())) {
+        return action;
+      }
+    }
+    throw new IllegalArgumentException("Invalid action for " + key + ": " + value);
+
+  }
+
+  /**
+   * Returns the number of points the card is worth under these rules.
+   *
+   * @param card the id of the card
+   * @return the score of the card
+   */
+  public int score(int card) {
+    return scores[card];
+  }
+
+  /**
+   * Returns the action of the card under these rules.
+   *
+   * @param card the id of the card
+   * @return one of Cards.ACTION_NONE, ACTION_PEEK, ACTION_SPY or ACTION_SWITCH
+   */
+  public int action(int card) {
+    return actions[card];
+  }
+
+  public boolean isAction(int card) {
+    return actions[card] != Cards.ACTION_NONE;
+  }
+
+  /**
+   * Returns the total score of a hand under these rules.
+   *
+   * @param hand the hand
+   * @return the sum of the scores of its cards
+   */
+  public int handScore(Hand hand) {
+
+    int total = 0;
+    for (int i = 0; i < hand.size(); i++) {
+      total += scores[hand.getCard(i)];
+    }
+    return total;
+
+  }
+
+  /**
+   * Returns the number of cards in the game, in every deck together.
+   *
+   * @return the number of cards, whose ids are 0 to the number minus one
+   */
+  public int getDeckSize() {
+    return deckSize;
+  }
+
+  public int getNumDecks() {
+    return deckSize / Cards.DECK_SIZE;
+  }
+
+  public int getHandSize() {
+    return handSize;
+  }
+
+  public int getNumPlayers() {
+    return numPlayers;
+  }
+
+}
@@ -0,0 +1,95 @@
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+/**
+ * The SceneLayer class caches one part of the scene in an off-screen image. The layer is given a
+ * key that changes whenever its part of the game state changes (for example the version of a hand),
+ * and is only re-rendered when the key is different from the one it was last rendered for; every
+ * other frame just copies the cached image to the screen.
+ *
+ * The layer covers a rectangle of the window but is drawn in window coordinates, so the draw
+ * methods of cards and buttons work the same on a layer as on the screen.
+ */
+public class SceneLayer {
+
+  private final PGraphics graphics;
+  private boolean rendered;
+  private long key;
+  private final PApplet processing;
+  private final int x;
+  private final int y;
+
+  /**
+   * Creates a layer covering the given rectangle of the window. The layer uses the sketch's
+   * current font.
+   *
+   * @param processing the sketch the layer is drawn on
+   * @param x          the x-coordinate of the top-left corner of the layer
+   * @param y          the y-coordinate of the top-left corner of the layer
+   * @param width      the width of the layer
+   * @param height     the height of the layer
+   */
+  public SceneLayer(PApplet processing, int x, int y, int width, int height) {
+
+    this.processing = processing;
+    this.x = x;
+    this.y = y;
+    this.graphics = processing.createGraphics(width, height);
+    graphics.beginDraw();
+    graphics.textFont(processing.g.textFont);
+    graphics.endDraw();
+
+  }
+
+  /**
+   * Returns whether the layer must be re-rendered for the given key, that is whether it has never
+   * been rendered or was rendered for a different key.
+   *
+   * @param key the key of the layer's part of the game state
+   * @return true if the layer must be re-rendered
+   */
+  public boolean isStale(long key) {
+
+    return !rendered || this.key != key;
+
+  }
+
+  /**
+   * Clears the layer and starts re-rendering it for the given key.
+   *
+   * @param key the key of the layer's part of the game state
+   * @return the graphics to render the layer on, in window coordinates
+   */
+  public PGraphics beginDraw(long key) {
+
+    this.key = key;
+    this.rendered = true;
+    graphics.beginDraw();
+    graphics.clear();
+    graphics.translate(-x, -y);
+    return graphics;
+
+  }
+
+  public void endDraw() {
+
+    graphics.endDraw();
+
+  }
+
+  /**
+   * Copies the cached layer to the screen. A layer that covers the whole window is copied as the
+   * background, which replaces the pixels instead of blending them and is several times faster.
+   */
+  public void draw() {
+
+    if (x == 0 && y == 0 && graphics.width == processing.width
+        && graphics.height == processing.height) {
+      processing.background(graphics);
+    } else {
+      processing.image(graphics, x, y);
+    }
+
+  }
+
+}
@@ -0,0 +1,146 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The TableStore class keeps the saved states of hibernated tables (see CaboTable) outside of the
+ * Java heap, in fixed-size slots. Slots are carved out of chunks that are allocated as they are
+ * needed, either as direct buffers or as memory-mapped regions of a file, and freed slots are
+ * reused, so the heap only holds the list of chunks and the free list.
+ *
+ * Allocating and freeing slots is thread-safe. A slot belongs to whoever allocated it until it is
+ * freed, so different slots can be written and read by different threads at the same time.
+ */
+public class TableStore implements Closeable {
+
+  private static final int SLOTS_PER_CHUNK = 1024;
+
+  private final FileChannel channel; // null if the chunks are direct buffers
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private int[] freeSlots = new int[64];
+  private int freeCount;
+  private int slotCount; // the number of slots ever handed out
+  private final int slotSize;
+
+  /**
+   * Creates an empty store of direct buffers.
+   *
+   * @param slotSize the size of every slot, in bytes
+   */
+  public TableStore(int slotSize) {
+
+    this.slotSize = slotSize;
+    this.channel = null;
+
+  }
+
+  /**
+   * Creates an empty store that maps its chunks from a file. The file is overwritten.
+   *
+   * @param slotSize the size of every slot, in bytes
+   * @param path     the file
+   * @throws IOException if the file cannot be opened
+   */
+  public TableStore(int slotSize, Path path) throws IOException {
+
+    this.slotSize = slotSize;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+  }
+
+  /**
+   * Hands out a free slot.
+   *
+   * @return the index of the slot
+   * @throws IOException if a new chunk cannot be mapped
+   */
+  public synchronized int allocate() throws IOException {
+
+    if (freeCount > 0) {
+      return freeSlots[--freeCount];
+    }
+    if (slotCount == chunks.size() * SLOTS_PER_CHUNK) {
+      long chunkSize = (long) slotSize * SLOTS_PER_CHUNK;
+      chunks.add(channel == null ? ByteBuffer.allocateDirect((int) chunkSize)
+          : channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkSize, chunkSize));
+    }
+    return slotCount++;
+
+  }
+
+  /**
+   * Returns a slot to the store, to be handed out again.
+   *
+   * @param slot the index of the slot
+   */
+  public synchronized void free(int slot) {
+
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount);
+    }
+    freeSlots[freeCount++] = slot;
+
+  }
+
+  /**
+   * Returns a buffer over a slot, positioned at its start and limited to its size.
+   *
+   * @param slot the index of the slot
+   * @return the little-endian buffer of the slot
+   */
+  public ByteBuffer slot(int slot) {
+
+    ByteBuffer chunk;
+    synchronized (this) {
+      chunk = chunks.get(slot / SLOTS_PER_CHUNK);
+    }
+    return chunk.slice((slot % SLOTS_PER_CHUNK) * slotSize, slotSize)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+  }
+
+  /**
+   * Returns the number of slots in use.
+   *
+   * @return the number of slots allocated and not freed
+   */
+  public synchronized int getUsedSlots() {
+    return slotCount - freeCount;
+  }
+
+  /**
+   * Returns the memory taken by the store outside of the heap, including free slots.
+   *
+   * @return the size of all chunks, in bytes
+   */
+  public synchronized long getCapacityBytes() {
+    return (long) chunks.size() * SLOTS_PER_CHUNK * slotSize;
+  }
+
+  public int getSlotSize() {
+    return slotSize;
+  }
+
+  /**
+   * Closes the file of a mapped store. The slots must not be used afterwards.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    if (channel != null) {
+      channel.close();
+    }
+
+  }
+
+}